@@ -0,0 +1,58 @@
+package com.siemens.internship.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Puts the connection bulkhead in front of the application's DataSource, so every connection request,
+ * whichever repository or transaction it comes from, is classified as interactive or batch.
+ */
+@Configuration
+public class BulkheadConfig {
+
+    /**
+     * Wraps the DataSource once it is initialized. Static, and resolving the bulkhead lazily, so the
+     * post-processor does not pull other beans into early initialization.
+     * @param bulkhead the connection bulkhead
+     * @return the post-processor
+     */
+    @Bean
+    public static BeanPostProcessor connectionBulkheadPostProcessor(ObjectProvider<ConnectionBulkhead> bulkhead) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof BulkheadDataSource)
+                        && bulkhead.getObject().isEnabled()) {
+                    return new BulkheadDataSource(dataSource, bulkhead.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    static final class BulkheadDataSource extends DelegatingDataSource {
+        private final ConnectionBulkhead bulkhead;
+
+        BulkheadDataSource(DataSource pool, ConnectionBulkhead bulkhead) {
+            super(pool);
+            this.bulkhead = bulkhead;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return bulkhead.getConnection(() -> obtainTargetDataSource().getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return bulkhead.getConnection(() -> obtainTargetDataSource().getConnection(username, password));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.siemens.internship.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reserves part of the connection pool for API requests. Threads serving an HTTP request are interactive
+ * (see InteractiveRequestFilter); every other thread, i.e. the processing executor, partition and pipeline
+ * pools, the drainer and startup jobs, is batch work and has to hold one of
+ * maximum-pool-size - reservedConnections permits while it holds a connection.
+ * Interactive connections are never limited here, so while a batch run is saturating its share, requests
+ * still get one of the reserved connections instead of queueing behind the run in the pool.
+ * Permits in use and batch threads waiting for one are published as processing.bulkhead.batch.connections
+ * and processing.bulkhead.batch.waiting.
+ */
+@Component
+public class ConnectionBulkhead implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionBulkhead.class);
+    private static final ThreadLocal<Boolean> INTERACTIVE = ThreadLocal.withInitial(() -> false);
+
+    private final boolean enabled;
+    private final int batchPermits;
+    private final long acquireTimeoutMillis;
+    private final Semaphore permits;
+
+    public ConnectionBulkhead(ProcessingProperties processingProperties,
+                              @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        ProcessingProperties.Bulkhead settings = processingProperties.getBulkhead();
+        this.enabled = settings.isEnabled();
+        this.batchPermits = Math.max(1, connectionPoolSize - Math.max(0, settings.getReservedConnections()));
+        this.acquireTimeoutMillis = settings.getAcquireTimeout().toMillis();
+        this.permits = new Semaphore(batchPermits, true);
+        if (enabled) {
+            logger.info("Batch work may hold {} of {} pooled connections", batchPermits, connectionPoolSize);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Marks the current thread as interactive, i.e. exempt from the batch quota, until restoreInteractive is called.
+     * @return the previous marking, to hand to restoreInteractive
+     */
+    static boolean markInteractive() {
+        boolean previous = INTERACTIVE.get();
+        INTERACTIVE.set(true);
+        return previous;
+    }
+
+    static void restoreInteractive(boolean previous) {
+        INTERACTIVE.set(previous);
+    }
+
+    public static boolean isInteractive() {
+        return INTERACTIVE.get();
+    }
+
+    /**
+     * Gets a connection from the pool, first taking a batch permit unless the current thread is interactive.
+     * The permit is given back when the connection is closed, i.e. returned to the pool.
+     * @param pool opens the pooled connection
+     * @return the connection
+     * @throws SQLTransientConnectionException if no permit became free within the acquire timeout
+     */
+    Connection getConnection(ConnectionSource pool) throws SQLException {
+        if (!enabled || isInteractive()) {
+            return pool.open();
+        }
+
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("All " + batchPermits
+                        + " batch connections are in use, none became free within " + acquireTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a batch connection", e);
+        }
+
+        try {
+            return releasingOnClose(pool.open());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    boolean closing = method.getName().equals("close") && method.getParameterCount() == 0;
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if (closing && released.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                });
+    }
+
+    /**
+     * @return the number of connections currently held by batch work
+     */
+    public int getBatchConnectionsInUse() {
+        return batchPermits - permits.availablePermits();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("processing.bulkhead.batch.connections", this, ConnectionBulkhead::getBatchConnectionsInUse)
+                .description("Pooled connections currently held by batch work")
+                .register(registry);
+        Gauge.builder("processing.bulkhead.batch.waiting", permits, Semaphore::getQueueLength)
+                .description("Batch threads waiting for their share of the connection pool")
+                .register(registry);
+    }
+
+    @FunctionalInterface
+    interface ConnectionSource {
+        Connection open() throws SQLException;
+    }
+}
@@ -0,0 +1,29 @@
+package com.siemens.internship.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Marks the thread handling an HTTP request as interactive for the duration of the request, so its database
+ * work uses the connections that ConnectionBulkhead reserves for API traffic.
+ */
+@Component
+public class InteractiveRequestFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean previous = ConnectionBulkhead.markInteractive();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ConnectionBulkhead.restoreInteractive(previous);
+        }
+    }
+}
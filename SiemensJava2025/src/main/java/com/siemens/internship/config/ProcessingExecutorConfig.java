@@ -0,0 +1,120 @@
+package com.siemens.internship.config;
+
+import com.siemens.internship.service.SemaphoreBoundedExecutor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the executor used by ItemService for item processing, according to processing.executor-strategy.
+ */
+@Configuration
+public class ProcessingExecutorConfig {
+    /**
+     * The processing executor. Spring shuts it down together with the application context.
+     * @param properties the processing properties
+     * @param connectionPoolSize the Hikari pool size, used as the default bound for BOUNDED_VIRTUAL
+     * @return the executor for the configured strategy
+     */
+    @Bean(name = "processingExecutor", destroyMethod = "shutdown")
+    public ExecutorService processingExecutor(ProcessingProperties properties,
+                                              @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        return switch (properties.getExecutorStrategy()) {
+            case FIXED -> newBoundedThreadPool(properties);
+            case VIRTUAL -> newVirtualThreadPerTaskExecutor();
+            case BOUNDED_VIRTUAL -> {
+                int permits = properties.getMaxConcurrency() > 0 ? properties.getMaxConcurrency() : connectionPoolSize;
+                yield new SemaphoreBoundedExecutor(newVirtualThreadPerTaskExecutor(), permits);
+            }
+        };
+    }
+
+    /**
+     * Publishes the processing executor's queue depth, active threads and completed tasks under
+     * the "executor.*" metrics tagged name=processing, so saturation can be alerted on.
+     * For BOUNDED_VIRTUAL the tasks waiting for a permit are published as processing.executor.waiting.
+     * @param executor the processing executor
+     * @return the binder registered with the meter registry
+     */
+    @Bean
+    public MeterBinder processingExecutorMetrics(@Qualifier("processingExecutor") ExecutorService executor) {
+        return registry -> {
+            new ExecutorServiceMetrics(executor, "processing", Tags.empty()).bindTo(registry);
+            if (executor instanceof SemaphoreBoundedExecutor bounded) {
+                Gauge.builder("processing.executor.waiting", bounded, SemaphoreBoundedExecutor::getWaitingCount)
+                        .description("Tasks waiting for a processing permit")
+                        .register(registry);
+            }
+        };
+    }
+
+    /**
+     * A fixed pool in front of a bounded ArrayBlockingQueue, unlike Executors.newFixedThreadPool whose
+     * unbounded queue lets a large run hold every pending task on the heap.
+     */
+    static ThreadPoolExecutor newBoundedThreadPool(ProcessingProperties properties) {
+        return new ThreadPoolExecutor(properties.getPoolSize(), properties.getPoolSize(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()), rejectionHandler(properties));
+    }
+
+    private static RejectedExecutionHandler rejectionHandler(ProcessingProperties properties) {
+        return switch (properties.getRejectionPolicy()) {
+            case CALLER_RUNS -> new ThreadPoolExecutor.CallerRunsPolicy();
+            case FAIL_FAST -> new ThreadPoolExecutor.AbortPolicy();
+            case BLOCK -> (task, pool) -> {
+                long timeoutMillis = properties.getBlockTimeout().toMillis();
+                try {
+                    if (pool.isShutdown() || !pool.getQueue().offer(task, timeoutMillis, TimeUnit.MILLISECONDS)) {
+                        throw new RejectedExecutionException("Processing queue still full after " + timeoutMillis + " ms");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting for room in the processing queue", e);
+                }
+            };
+        };
+    }
+
+    /**
+     * Virtual threads only exist from Java 21 on, while the project still targets Java 17, so the factory method
+     * is looked up at runtime. There is deliberately no fallback: a thread-per-task pool of platform threads would
+     * be unbounded, and under BOUNDED_VIRTUAL every queued task would hold an OS thread while it waits for a permit.
+     * @return a virtual-thread-per-task executor
+     * @throws IllegalStateException if the JVM has no virtual threads, which fails the application at startup
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("processing.executor-strategy VIRTUAL and BOUNDED_VIRTUAL need Java 21 or "
+                    + "later, this is Java " + Runtime.version().feature() + "; use FIXED instead", e);
+        }
+    }
+
+    /**
+     * @return whether the JVM supports the VIRTUAL and BOUNDED_VIRTUAL strategies
+     */
+    public static boolean virtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
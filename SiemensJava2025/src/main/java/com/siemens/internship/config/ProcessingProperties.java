@@ -0,0 +1,369 @@
+package com.siemens.internship.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.lang.NonNull;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Tuning knobs for the item processing job, bound from the "processing.*" properties.
+ * Spring Boot validates the bound values through {@link #validate}, so an unusable setting stops the application
+ * at startup with a message naming the property.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "processing")
+public class ProcessingProperties implements Validator {
+
+    /**
+     * Number of item IDs fetched per keyset page; each page is processed as one chunk.
+     */
+    private int chunkSize = 500;
+
+    /**
+     * Maximum number of chunks being processed at the same time.
+     * Together with chunkSize this bounds the number of queued tasks, independent of the table size.
+     */
+    private int maxInFlightChunks = 4;
+
+    /**
+     * Number of worker threads used to process items with the FIXED executor strategy.
+     */
+    private int poolSize = 10;
+
+    /**
+     * Capacity of the FIXED pool's work queue. Once it is full the rejection policy applies.
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * What happens to a task submitted while the FIXED pool's queue is full.
+     */
+    private RejectionPolicy rejectionPolicy = RejectionPolicy.CALLER_RUNS;
+
+    /**
+     * How long the BLOCK rejection policy waits for room in the queue before giving up.
+     */
+    private Duration blockTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Which kind of executor runs the per-item work.
+     * VIRTUAL and BOUNDED_VIRTUAL need virtual threads, i.e. a Java 21 or later runtime. The project is built for
+     * Java 17, so on a Java 17 runtime only FIXED is usable and the other two fail configuration validation.
+     */
+    private ExecutorStrategy executorStrategy = ExecutorStrategy.FIXED;
+
+    /**
+     * Maximum number of items processed at the same time with the BOUNDED_VIRTUAL strategy.
+     * A value of 0 or less means "use the size of the database connection pool".
+     */
+    private int maxConcurrency = 0;
+
+    /**
+     * Simulated per-item work done before the item is loaded and saved.
+     */
+    private Duration simulatedDelay = Duration.ofMillis(150);
+
+    /**
+     * Write each chunk with one saveAll in a single transaction instead of one save (and commit) per item.
+     * Not used with lease claiming, where every write is conditional on the item's lease.
+     */
+    private boolean batchWrites = true;
+
+    /**
+     * Number of worker threads of the fork/join pool used by partitioned processing.
+     * A value of 0 or less means "use poolSize".
+     */
+    private int partitionParallelism = 0;
+
+    /**
+     * Maximum time for one attempt of an item: loading it and running its stages, or writing it (or its batch).
+     * An item that takes longer is not retried but dead-lettered as timed out. 0 disables the timeout.
+     */
+    private Duration itemTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Maximum duration of an on-demand run. A run still going at its deadline is cancelled and completes with
+     * partial results: what was processed, what timed out and what never started. 0 disables the deadline.
+     */
+    private Duration jobDeadline = Duration.ofMinutes(30);
+
+    /**
+     * Number of candidate items a dry run samples to estimate the cost of a run, unless the request asks for another number.
+     */
+    private int estimateSampleSize = 50;
+
+    /**
+     * How often progress events are pushed to clients of the progress stream.
+     */
+    private Duration progressInterval = Duration.ofSeconds(1);
+
+    /**
+     * How long a processing job stays owned by its node without a heartbeat. The owner renews the lease every
+     * third of it; a RUNNING job whose lease has expired is taken over by another node, from its checkpoint.
+     */
+    private Duration jobLease = Duration.ofMinutes(1);
+
+    /**
+     * Lease-based claiming, for several instances processing the same database.
+     */
+    private final Lease lease = new Lease();
+
+    @Getter
+    @Setter
+    public static class Lease {
+        /**
+         * When enabled, runs only pick up items that are not PROCESSED and claim them in batches with
+         * an expiring lease, so concurrent instances share the work instead of repeating it.
+         */
+        private boolean enabled = false;
+
+        /**
+         * How long a claimed batch stays reserved. A crashed instance's items become claimable again afterwards.
+         */
+        private Duration duration = Duration.ofMinutes(5);
+
+        /**
+         * Identifies this instance in claim tokens and as the owner of the processing jobs it runs. With a fixed
+         * value, a restarted instance resumes its own jobs right away instead of waiting for their leases to expire.
+         */
+        private String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Adaptive limit on concurrent processing database operations.
+     */
+    private final AdaptiveLimit adaptiveLimit = new AdaptiveLimit();
+
+    @Getter
+    @Setter
+    public static class AdaptiveLimit {
+        /**
+         * When enabled, loads and writes of items are admitted through an AIMD limit driven by their latency.
+         * Most useful with the VIRTUAL strategies or large pools, where the pool size no longer bounds them.
+         */
+        private boolean enabled = false;
+
+        private int initialLimit = 10;
+        private int minLimit = 1;
+        /**
+         * Upper bound of the limit. It is further capped at the executor's concurrency, i.e. poolSize with FIXED.
+         */
+        private int maxLimit = 200;
+
+        /**
+         * Operations slower than this (per row) count as a sign of database overload and shrink the limit.
+         */
+        private Duration latencyThreshold = Duration.ofMillis(50);
+
+        /**
+         * Factor applied to the limit on overload.
+         */
+        private double backoffRatio = 0.9;
+    }
+
+    /**
+     * Retries of items whose processing failed, before they are moved to the dead-letter table.
+     */
+    private final Retry retry = new Retry();
+
+    @Getter
+    @Setter
+    public static class Retry {
+        /**
+         * Total number of attempts per item, including the first one. 1 disables retries.
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * Delay before the first retry; each further retry waits multiplier times longer, up to maxBackoff.
+         */
+        private Duration initialBackoff = Duration.ofMillis(100);
+        private double multiplier = 2.0;
+        private Duration maxBackoff = Duration.ofSeconds(5);
+
+        /**
+         * Fraction of each delay that is randomized (0 = none, 1 = anywhere between zero and the full delay),
+         * so items that failed together do not all retry at the same moment.
+         */
+        private double jitter = 0.5;
+    }
+
+    /**
+     * Token-bucket limit on the rate at which items enter the processing pipeline. These are the startup values;
+     * all three can be changed at runtime under /api/admin/processing/rate-limit.
+     */
+    private final RateLimit rateLimit = new RateLimit();
+
+    @Getter
+    @Setter
+    public static class RateLimit {
+        /**
+         * When enabled, every item (and every retry of an item) takes a token before it is loaded, which caps
+         * the database load of processing and leaves room on the connection pool for interactive requests.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Rate at which tokens are added to the bucket.
+         */
+        private double itemsPerSecond = 200.0;
+
+        /**
+         * Capacity of the bucket: how many items may start at once after a quiet period.
+         */
+        private int burst = 50;
+    }
+
+    /**
+     * Background drainer that processes unprocessed items continuously in small batches.
+     * These are the startup values; all three can be changed at runtime under /api/admin/processing/drainer.
+     */
+    private final Drainer drainer = new Drainer();
+
+    @Getter
+    @Setter
+    public static class Drainer {
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of items processed per batch.
+         */
+        private int batchSize = 100;
+
+        /**
+         * Pause between the end of one batch and the start of the next.
+         */
+        private Duration interval = Duration.ofSeconds(5);
+    }
+
+    /**
+     * Durable queue of created or changed items, filled by ItemService.save and drained by the work queue worker.
+     */
+    private final WorkQueue workQueue = new WorkQueue();
+
+    @Getter
+    @Setter
+    public static class WorkQueue {
+        /**
+         * When enabled, every save through the API queues the item in the same transaction, and a worker
+         * processes queued items in batches, so new work is found without scanning the item table.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of queued items processed per batch.
+         */
+        private int batchSize = 100;
+
+        /**
+         * Pause before polling again after a batch that emptied the queue. A full batch is followed by the next one right away.
+         */
+        private Duration pollInterval = Duration.ofSeconds(1);
+    }
+
+    /**
+     * Staged pipeline: a reader, a transform and a writer stage, each with its own threads, connected by bounded queues.
+     */
+    private final Pipeline pipeline = new Pipeline();
+
+    @Getter
+    @Setter
+    public static class Pipeline {
+        /**
+         * Threads of the transform stage, i.e. how many items run their ItemProcessor stages at the same time.
+         */
+        private int transformThreads = 32;
+
+        /**
+         * Threads of the writer stage, i.e. how many batch writes may be running at the same time.
+         */
+        private int writerThreads = 2;
+
+        /**
+         * Capacity of each queue between two stages. A full queue blocks the stage feeding it.
+         */
+        private int queueCapacity = 1000;
+
+        /**
+         * Maximum number of items written with one saveAll. Writers take whatever is queued, up to this many.
+         */
+        private int writeBatchSize = 100;
+    }
+
+    /**
+     * Connection bulkhead between API requests and batch processing, which share one connection pool.
+     */
+    private final Bulkhead bulkhead = new Bulkhead();
+
+    @Getter
+    @Setter
+    public static class Bulkhead {
+        /**
+         * When enabled, work outside HTTP request threads (processing pools, the drainer, startup jobs) may hold at
+         * most maximum-pool-size minus reservedConnections connections at the same time.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Connections of the pool that batch work can never take, so API requests always find one.
+         */
+        private int reservedConnections = 2;
+
+        /**
+         * How long batch work waits for its share of the pool before the connection request fails.
+         */
+        private Duration acquireTimeout = Duration.ofSeconds(30);
+    }
+
+    @Override
+    public boolean supports(@NonNull Class<?> type) {
+        return ProcessingProperties.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void validate(@NonNull Object target, @NonNull Errors errors) {
+        ProcessingProperties properties = (ProcessingProperties) target;
+        if (properties.getExecutorStrategy() != ExecutorStrategy.FIXED
+                && !ProcessingExecutorConfig.virtualThreadsAvailable()) {
+            errors.rejectValue("executorStrategy", "processing.executor-strategy.unsupported",
+                    properties.getExecutorStrategy() + " needs virtual threads (Java 21 or later), this is Java "
+                            + Runtime.version().feature() + "; use FIXED instead");
+        }
+    }
+
+    public enum ExecutorStrategy {
+        /**
+         * A fixed pool of poolSize platform threads.
+         */
+        FIXED,
+        /**
+         * One virtual thread per task, unbounded. Needs Java 21 or later.
+         */
+        VIRTUAL,
+        /**
+         * One virtual thread per task, with at most maxConcurrency tasks running at once. Needs Java 21 or later.
+         */
+        BOUNDED_VIRTUAL
+    }
+
+    public enum RejectionPolicy {
+        /**
+         * The submitting thread runs the task itself, which naturally slows down the producer.
+         */
+        CALLER_RUNS,
+        /**
+         * The submitting thread waits up to blockTimeout for room in the queue, then the task is rejected.
+         */
+        BLOCK,
+        /**
+         * The task is rejected immediately; ItemController answers 503 Service Unavailable.
+         */
+        FAIL_FAST
+    }
+}
@@ -1,28 +1,55 @@
 package com.siemens.internship.controller;
 
+import com.siemens.internship.model.BulkProcessingResult;
+import com.siemens.internship.model.DeadLetterItem;
 import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ItemFilter;
+import com.siemens.internship.model.ProcessingEstimate;
+import com.siemens.internship.model.ProcessingProgress;
+import com.siemens.internship.model.ProcessingSummary;
 import com.siemens.internship.service.ItemService;
+import com.siemens.internship.service.ProcessingEstimator;
+import com.siemens.internship.service.ProcessingRun;
+import com.siemens.internship.service.StagedItemPipeline;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/items")
 public class ItemController {
     private static final Logger logger = LoggerFactory.getLogger(ItemController.class);
+    /** Response header with the ID of the run that served the request. */
+    private static final String RUN_ID_HEADER = "X-Processing-Run-Id";
 
     private final ItemService itemService;
+    private final ProgressStreamer progressStreamer;
+    private final ProcessedIdStreamer processedIdStreamer;
+    private final StagedItemPipeline stagedPipeline;
+    private final ProcessingEstimator processingEstimator;
 
-    public ItemController(ItemService itemService) {
+    public ItemController(ItemService itemService, ProgressStreamer progressStreamer,
+                          ProcessedIdStreamer processedIdStreamer, StagedItemPipeline stagedPipeline,
+                          ProcessingEstimator processingEstimator) {
         this.itemService = itemService;
+        this.progressStreamer = progressStreamer;
+        this.processedIdStreamer = processedIdStreamer;
+        this.stagedPipeline = stagedPipeline;
+        this.processingEstimator = processingEstimator;
     }
 
     /**
@@ -102,16 +129,285 @@ public class ItemController {
 
     /**
      * GET /api/items/process
-     * Triggers asynchronous processing of all items.
-     * @return 200 OK with processed items or 500 if processing fails
+     * Triggers asynchronous processing of all items. Concurrent requests share the run already in progress;
+     * while a run of another kind holds this node's processing slot, the request waits for it to end.
+     * The response carries the run's ID in X-Processing-Run-Id, and X-Processing-Cancelled: true if the run
+     * was cancelled, see POST /api/items/process/{runId}/cancel.
+     * A run that passes the job deadline answers with the items processed so far and the header
+     * X-Processing-Deadline-Exceeded: true, along with X-Processing-Timed-Out-Count and, if items were left
+     * unselected, X-Processing-Not-Started-After-Id. The timed-out and not-started IDs themselves are not part
+     * of this response; clients that need them call GET /api/items/process/summary instead, whose response
+     * carries them in timedOutIds and notStartedIds.
+     * @param incremental if true, only items that are not yet PROCESSED are processed
+     * @param force if true, the request starts a run of its own instead of attaching to the one in progress
+     * @return 200 OK with processed items, 503 if the processing queue is full or 500 if processing fails
      */
     @GetMapping("/process")
-    public CompletableFuture<ResponseEntity<List<Item>>> processItems() {
-        return itemService.processItemsAsync()
+    public CompletableFuture<ResponseEntity<List<Item>>> processItems(@RequestParam(defaultValue = "false") boolean incremental,
+                                                                      @RequestParam(defaultValue = "false") boolean force) {
+        return itemService.processItemsRunAsync(incremental, force)
+                .thenApply(run -> ResponseEntity.ok().headers(runHeaders(run)).body(run.getProcessedItems()))
+                .exceptionally(ex -> {
+                    logger.error("Failed to process items asynchronously", ex);
+                    return ResponseEntity.status(statusFor(ex)).build();
+                });
+    }
+
+    /**
+     * GET /api/items/process/summary
+     * Triggers processing like GET /api/items/process, but responds with counts, timings and failed IDs only,
+     * instead of every processed item, and the run's ID. A run that passes the job deadline still answers 200,
+     * with the IDs that timed out or were never started.
+     * @param incremental if true, only items that are not yet PROCESSED are processed
+     * @param force if true, the request starts a run of its own instead of attaching to the one in progress
+     * @return 200 OK with the run summary, 503 if the processing queue is full or 500 if processing fails
+     */
+    @GetMapping("/process/summary")
+    public CompletableFuture<ResponseEntity<ProcessingSummary>> processItemsSummary(@RequestParam(defaultValue = "false") boolean incremental,
+                                                                                    @RequestParam(defaultValue = "false") boolean force) {
+        return itemService.processItemsSummaryAsync(incremental, force)
                 .thenApply(ResponseEntity::ok)
                 .exceptionally(ex -> {
                     logger.error("Failed to process items asynchronously", ex);
-                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+                    return ResponseEntity.status(statusFor(ex)).build();
+                });
+    }
+
+    /**
+     * GET /api/items/process/estimate
+     * Dry run: samples candidate items, times loading them and running their stages, takes the write latency from
+     * recent runs, and projects the duration and database statements of a run with the configured concurrency.
+     * Nothing is written.
+     * @param incremental if true, the estimate is for a run over the items that are not yet PROCESSED
+     * @param sampleSize number of items to sample, by default processing.estimate-sample-size
+     * @return 200 OK with the estimate, 400 if the sample size is invalid, 503 if the processing queue is full or 500 if the dry run fails
+     */
+    @GetMapping("/process/estimate")
+    public CompletableFuture<ResponseEntity<Object>> estimateProcessing(@RequestParam(defaultValue = "false") boolean incremental,
+                                                                        @RequestParam(required = false) Integer sampleSize) {
+        CompletableFuture<ProcessingEstimate> estimate;
+        try {
+            estimate = processingEstimator.estimateAsync(incremental, sampleSize);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Invalid input: " + e.getMessage()));
+        }
+        return estimate
+                .<ResponseEntity<Object>>thenApply(ResponseEntity::ok)
+                .exceptionally(ex -> {
+                    logger.error("Failed to estimate processing", ex);
+                    return ResponseEntity.status(statusFor(ex)).build();
                 });
     }
+
+    /**
+     * GET /api/items/process/filtered
+     * Processes only the items matching a filter and responds with the run summary. At most one of status, ids
+     * and emailDomain can be given; fromId and toId narrow any of them, or select an ID range on their own.
+     * Each filter is served by an index, so reprocessing a few items does not cost a run over the whole table.
+     * @param status only items with this status
+     * @param fromId only items whose ID is at least this
+     * @param toId only items whose ID is at most this
+     * @param ids only these items, comma-separated
+     * @param emailDomain only items whose email address is at this domain
+     * @return 200 OK with the run summary, 400 if the filter is invalid, 503 if the processing queue is full or 500 if processing fails
+     */
+    @GetMapping("/process/filtered")
+    public CompletableFuture<ResponseEntity<Object>> processItemsFiltered(@RequestParam(required = false) String status,
+                                                                          @RequestParam(required = false) Long fromId,
+                                                                          @RequestParam(required = false) Long toId,
+                                                                          @RequestParam(required = false) List<Long> ids,
+                                                                          @RequestParam(required = false) String emailDomain) {
+        CompletableFuture<ProcessingSummary> summary;
+        try {
+            summary = itemService.processFilteredSummaryAsync(new ItemFilter(status, fromId, toId, ids, emailDomain));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Invalid input: " + e.getMessage()));
+        }
+        return summary
+                .<ResponseEntity<Object>>thenApply(ResponseEntity::ok)
+                .exceptionally(ex -> {
+                    logger.error("Failed to process filtered items", ex);
+                    return ResponseEntity.status(statusFor(ex)).build();
+                });
+    }
+
+    /**
+     * GET /api/items/process/partitioned
+     * Processes items by recursively splitting the ID range on a fork/join pool instead of paging through it,
+     * and responds with the run summary.
+     * @param incremental if true, only items that are not yet PROCESSED are processed
+     * @return 200 OK with the run summary, 503 if the processing queue is full or 500 if processing fails
+     */
+    @GetMapping("/process/partitioned")
+    public CompletableFuture<ResponseEntity<ProcessingSummary>> processItemsPartitioned(@RequestParam(defaultValue = "false") boolean incremental) {
+        return itemService.processItemsPartitionedAsync(incremental)
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(ex -> {
+                    logger.error("Failed to process items in partitions", ex);
+                    return ResponseEntity.status(statusFor(ex)).build();
+                });
+    }
+
+    /**
+     * GET /api/items/process/staged
+     * Processes items through a pipeline of reader, transform and writer stages, each with its own threads
+     * and bounded queues between them, and responds with the run summary. Concurrent requests over the same
+     * items share one pipeline.
+     * @param incremental if true, only items that are not yet PROCESSED are processed
+     * @return 200 OK with the run summary, 503 if the processing queue is full or 500 if processing fails
+     */
+    @GetMapping("/process/staged")
+    public CompletableFuture<ResponseEntity<ProcessingSummary>> processItemsStaged(@RequestParam(defaultValue = "false") boolean incremental) {
+        return stagedPipeline.processAsync(incremental)
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(ex -> {
+                    logger.error("Failed to process items in the staged pipeline", ex);
+                    return ResponseEntity.status(statusFor(ex)).build();
+                });
+    }
+
+    /**
+     * GET /api/items/process/ids
+     * Starts processing and streams the IDs of the processed items as plain text, one per line,
+     * while the run progresses. The stream needs a run of its own; if one is already in progress it
+     * starts after that one. The response starts once the run has, with the run's ID in X-Processing-Run-Id.
+     * @param incremental if true, only items that are not yet PROCESSED are processed
+     * @return the ID stream, 503 if the processing queue is full or 500 if the run cannot start
+     */
+    @GetMapping(value = "/process/ids", produces = MediaType.TEXT_PLAIN_VALUE)
+    public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> processItemsStreamingIds(@RequestParam(defaultValue = "false") boolean incremental) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(0L);
+        return itemService.startProcessing(incremental, run -> processedIdStreamer.attach(run, emitter))
+                .thenApply(run -> ResponseEntity.ok()
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .header(RUN_ID_HEADER, run.getId())
+                        .body(emitter))
+                .exceptionally(ex -> {
+                    logger.error("Failed to start streaming processed IDs", ex);
+                    return ResponseEntity.status(statusFor(ex)).build();
+                });
+    }
+
+    /**
+     * GET /api/items/process/stream
+     * Starts processing and streams its progress as Server-Sent Events: periodic "progress" events with the
+     * run's ID, processed and failed counts, throughput, ETA and checkpoint, followed by a final "complete" event.
+     * Attaches to the run already in progress, if any.
+     * @param incremental if true, only items that are not yet PROCESSED are processed
+     * @param force if true, the request starts a run of its own instead of attaching to the one in progress
+     * @return the event stream
+     */
+    @GetMapping(value = "/process/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter processItemsWithProgress(@RequestParam(defaultValue = "false") boolean incremental,
+                                               @RequestParam(defaultValue = "false") boolean force) {
+        return progressStreamer.stream(itemService.startProcessing(incremental, force));
+    }
+
+    /**
+     * GET /api/items/process/runs
+     * Lists the runs in progress on this node, of every kind, with their IDs and progress.
+     * @return 200 OK with the progress of each active run
+     */
+    @GetMapping("/process/runs")
+    public ResponseEntity<List<ProcessingProgress>> getActiveRuns() {
+        return ResponseEntity.ok(itemService.findActiveRuns().stream().map(ProcessingRun::progress).toList());
+    }
+
+    /**
+     * POST /api/items/process/{runId}/cancel
+     * Cancels a run in progress on this node, whichever request started it. Requests attached to the run receive
+     * what it has done so far. Responds once the run has wound down.
+     * @param runId the ID of the run, as reported by the processing endpoints
+     * @return 200 OK with the summary of the cancelled run, or 404 Not Found if no such run is in progress
+     */
+    @PostMapping("/process/{runId}/cancel")
+    public CompletableFuture<ResponseEntity<Object>> cancelRun(@PathVariable String runId) {
+        return itemService.cancelRun(runId)
+                .map(cancelled -> cancelled.<ResponseEntity<Object>>thenApply(run -> ResponseEntity.ok(run.summary())))
+                .orElseGet(() -> CompletableFuture.completedFuture(
+                        ResponseEntity.status(HttpStatus.NOT_FOUND).body("Run not found")));
+    }
+
+    /**
+     * GET /api/items/process/bulk
+     * Moves all items to PROCESSED with set-based UPDATE statements, without per-item logic.
+     * @return 200 OK with the affected IDs and counts, 503 if the processing queue is full or 500 if processing fails
+     */
+    @GetMapping("/process/bulk")
+    public CompletableFuture<ResponseEntity<BulkProcessingResult>> processItemsInBulk() {
+        return itemService.processItemsInBulkAsync()
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(ex -> {
+                    logger.error("Failed to process items in bulk", ex);
+                    return ResponseEntity.status(statusFor(ex)).build();
+                });
+    }
+
+    /**
+     * GET /api/items/dead-letters
+     * Lists the items whose processing failed after all retries, with the cause of their last failure.
+     * @return 200 OK with the dead-letter entries
+     */
+    @GetMapping("/dead-letters")
+    public ResponseEntity<List<DeadLetterItem>> getDeadLetters() {
+        return ResponseEntity.ok(itemService.findDeadLetters());
+    }
+
+    /**
+     * POST /api/items/dead-letters/reprocess
+     * Processes only the dead-lettered items. Items that succeed are removed from the dead-letter table.
+     * @param force if true, the request starts a run of its own instead of attaching to the one in progress
+     * @return 200 OK with the items processed successfully, 503 if the processing queue is full or 500 if processing fails
+     */
+    @PostMapping("/dead-letters/reprocess")
+    public CompletableFuture<ResponseEntity<List<Item>>> reprocessDeadLetters(@RequestParam(defaultValue = "false") boolean force) {
+        return itemService.reprocessDeadLettersAsync(force)
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(ex -> {
+                    logger.error("Failed to reprocess dead-lettered items", ex);
+                    return ResponseEntity.status(statusFor(ex)).build();
+                });
+    }
+
+    /**
+     * Handles a processing request rejected before it even started, because the processing queue is full.
+     * @param ex the rejection
+     * @return 503 Service Unavailable
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> handleRejected(RejectedExecutionException ex) {
+        logger.warn("Processing request rejected: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Processing queue is full, try again later");
+    }
+
+    /**
+     * Headers identifying the run that served a request and telling a client whether its list of processed items
+     * is partial: always X-Processing-Run-Id; X-Processing-Cancelled if the run was cancelled; and, if the run
+     * passed its deadline, X-Processing-Deadline-Exceeded with the timed-out count and the last ID started.
+     */
+    private static HttpHeaders runHeaders(ProcessingRun run) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(RUN_ID_HEADER, run.getId());
+        if (run.isCancelled() && !run.isDeadlineExceeded()) {
+            headers.add("X-Processing-Cancelled", "true");
+        }
+        if (run.isDeadlineExceeded()) {
+            ProcessingSummary summary = run.summary();
+            headers.add("X-Processing-Deadline-Exceeded", "true");
+            headers.add("X-Processing-Timed-Out-Count", String.valueOf(summary.timedOutCount()));
+            if (summary.notStartedAfterId() != null) {
+                headers.add("X-Processing-Not-Started-After-Id", String.valueOf(summary.notStartedAfterId()));
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * A run that failed because its tasks were rejected by a saturated executor is reported as 503,
+     * so clients know to retry later; any other failure is a 500.
+     */
+    private static HttpStatus statusFor(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        return cause instanceof RejectedExecutionException ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.INTERNAL_SERVER_ERROR;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.siemens.internship.controller;
+
+import com.siemens.internship.model.Item;
+import com.siemens.internship.service.ProcessingRun;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Streams the IDs of the items processed by a run as plain text, one ID per line.
+ * IDs are buffered and written once per completed chunk rather than once per item, so the number of
+ * writes to the response follows the number of chunks, and the server never holds more than a few
+ * chunks' worth of IDs.
+ */
+@Component
+public class ProcessedIdStreamer {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessedIdStreamer.class);
+
+    /**
+     * Streams the given run to the emitter. Must be called before the run is started, so that no item is missed.
+     * If the client disconnects, only the stream stops; the run keeps going.
+     * @param run the run to report on
+     * @param emitter the emitter returned from the controller
+     */
+    public void attach(ProcessingRun run, ResponseBodyEmitter emitter) {
+        IdBuffer buffer = new IdBuffer(emitter);
+        emitter.onCompletion(buffer::close);
+        emitter.onTimeout(buffer::close);
+        emitter.onError(ex -> buffer.close());
+
+        run.addItemListener(buffer::add);
+        run.addChunkListener(completed -> buffer.flush());
+        run.getCompletion().whenComplete((result, ex) -> {
+            if (ex != null) {
+                buffer.close();
+                emitter.completeWithError(ex);
+            } else if (buffer.flush()) {
+                emitter.complete();
+            }
+        });
+    }
+
+    private static final class IdBuffer {
+        private final ResponseBodyEmitter emitter;
+        private final Queue<Long> ids = new ConcurrentLinkedQueue<>();
+        private volatile boolean closed;
+
+        IdBuffer(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void add(Item item) {
+            if (!closed) {
+                ids.add(item.getId());
+            }
+        }
+
+        /**
+         * Writes the buffered IDs in one send.
+         * @return false if the client has gone away
+         */
+        boolean flush() {
+            StringBuilder lines = new StringBuilder();
+            for (Long id = ids.poll(); id != null; id = ids.poll()) {
+                lines.append(id).append('\n');
+            }
+            if (closed) {
+                return false;
+            }
+            if (lines.isEmpty()) {
+                return true;
+            }
+            try {
+                emitter.send(lines.toString(), MediaType.TEXT_PLAIN);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Processed ID stream closed: {}", e.getMessage());
+                close();
+                return false;
+            }
+        }
+
+        void close() {
+            closed = true;
+            ids.clear();
+        }
+    }
+}
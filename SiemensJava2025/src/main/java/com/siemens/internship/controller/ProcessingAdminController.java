@@ -0,0 +1,105 @@
+package com.siemens.internship.controller;
+
+import com.siemens.internship.model.ConcurrencyLimitStatus;
+import com.siemens.internship.model.DrainerSettings;
+import com.siemens.internship.model.DrainerStatus;
+import com.siemens.internship.model.RateLimitSettings;
+import com.siemens.internship.model.RateLimitStatus;
+import com.siemens.internship.model.WorkQueueStatus;
+import com.siemens.internship.service.AdaptiveConcurrencyLimiter;
+import com.siemens.internship.service.BackgroundDrainer;
+import com.siemens.internship.service.ProcessingRateLimiter;
+import com.siemens.internship.service.WorkQueueWorker;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Operational view of the processing pipeline's runtime controls.
+ */
+@RestController
+@RequestMapping("/api/admin/processing")
+public class ProcessingAdminController {
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final BackgroundDrainer backgroundDrainer;
+    private final ProcessingRateLimiter rateLimiter;
+    private final WorkQueueWorker workQueueWorker;
+
+    public ProcessingAdminController(AdaptiveConcurrencyLimiter concurrencyLimiter, BackgroundDrainer backgroundDrainer,
+                                     ProcessingRateLimiter rateLimiter, WorkQueueWorker workQueueWorker) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.backgroundDrainer = backgroundDrainer;
+        this.rateLimiter = rateLimiter;
+        this.workQueueWorker = workQueueWorker;
+    }
+
+    /**
+     * GET /api/admin/processing/concurrency
+     * Retrieves the adaptive concurrency limit and its recent history.
+     * @return 200 OK with the limit status
+     */
+    @GetMapping("/concurrency")
+    public ResponseEntity<ConcurrencyLimitStatus> getConcurrencyLimit() {
+        return ResponseEntity.ok(concurrencyLimiter.status());
+    }
+
+    /**
+     * GET /api/admin/processing/drainer
+     * Retrieves the background drainer's settings and the outcome of its recent batches.
+     * @return 200 OK with the drainer status
+     */
+    @GetMapping("/drainer")
+    public ResponseEntity<DrainerStatus> getDrainer() {
+        return ResponseEntity.ok(backgroundDrainer.status());
+    }
+
+    /**
+     * PUT /api/admin/processing/drainer
+     * Enables or disables the background drainer or changes its batch size or interval at runtime.
+     * @param settings the settings to change; omitted fields keep their value
+     * @return 200 OK with the updated status, 400 if a value is invalid
+     */
+    @PutMapping("/drainer")
+    public ResponseEntity<Object> updateDrainer(@RequestBody DrainerSettings settings) {
+        try {
+            return ResponseEntity.ok(backgroundDrainer.update(settings));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid input: " + e.getMessage());
+        }
+    }
+
+    /**
+     * GET /api/admin/processing/work-queue
+     * Retrieves the work queue's backlog and what its worker has processed so far.
+     * @return 200 OK with the work queue status
+     */
+    @GetMapping("/work-queue")
+    public ResponseEntity<WorkQueueStatus> getWorkQueue() {
+        return ResponseEntity.ok(workQueueWorker.status());
+    }
+
+    /**
+     * GET /api/admin/processing/rate-limit
+     * Retrieves the processing rate limit and the items currently waiting for it.
+     * @return 200 OK with the rate limit status
+     */
+    @GetMapping("/rate-limit")
+    public ResponseEntity<RateLimitStatus> getRateLimit() {
+        return ResponseEntity.ok(rateLimiter.status());
+    }
+
+    /**
+     * PUT /api/admin/processing/rate-limit
+     * Enables or disables the processing rate limit or changes its rate or burst size at runtime.
+     * @param settings the settings to change; omitted fields keep their value
+     * @return 200 OK with the updated status, 400 if a value is invalid
+     */
+    @PutMapping("/rate-limit")
+    public ResponseEntity<Object> updateRateLimit(@RequestBody RateLimitSettings settings) {
+        try {
+            return ResponseEntity.ok(rateLimiter.update(settings));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid input: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.siemens.internship.controller;
+
+import com.siemens.internship.model.ProcessingJob;
+import com.siemens.internship.service.ProcessingJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/jobs")
+public class ProcessingJobController {
+
+    private final ProcessingJobService jobService;
+
+    public ProcessingJobController(ProcessingJobService jobService) {
+        this.jobService = jobService;
+    }
+
+    /**
+     * POST /api/jobs
+     * Starts a new persistent processing job in the background.
+     * @param incremental if true, only items that are not yet PROCESSED are processed
+     * @return 202 Accepted with the created job
+     */
+    @PostMapping
+    public ResponseEntity<ProcessingJob> startJob(@RequestParam(defaultValue = "false") boolean incremental) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobService.start(incremental));
+    }
+
+    /**
+     * GET /api/jobs
+     * Retrieves all processing jobs.
+     * @return 200 OK with the list of jobs
+     */
+    @GetMapping
+    public ResponseEntity<List<ProcessingJob>> getAllJobs() {
+        return ResponseEntity.ok(jobService.findAll());
+    }
+
+    /**
+     * GET /api/jobs/{id}
+     * Retrieves a processing job with its state, checkpoint and counters.
+     * @param id the ID of the job
+     * @return 200 OK with the job, or 404 Not Found
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Object> getJobById(@PathVariable Long id) {
+        return jobService.findById(id)
+                .<ResponseEntity<Object>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("Job not found"));
+    }
+
+    /**
+     * POST /api/jobs/{id}/cancel
+     * Cancels a job running on this node. Responds once the job has wound down, with the number of items it completed.
+     * @param id the ID of the job
+     * @return 200 OK with the cancelled job, 404 Not Found, or 409 Conflict if the job is not running on this node
+     */
+    @PostMapping("/{id}/cancel")
+    public CompletableFuture<ResponseEntity<Object>> cancelJob(@PathVariable Long id) {
+        if (jobService.findById(id).isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND).body("Job not found"));
+        }
+        return jobService.cancel(id)
+                .map(cancelled -> cancelled.<ResponseEntity<Object>>thenApply(ResponseEntity::ok))
+                .orElseGet(() -> CompletableFuture.completedFuture(
+                        ResponseEntity.status(HttpStatus.CONFLICT).body("Job is not running on this node")));
+    }
+}
@@ -0,0 +1,92 @@
+package com.siemens.internship.controller;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.service.ProcessingRun;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams the progress of a processing run as Server-Sent Events.
+ * Events are sampled on a fixed interval instead of being pushed per item, so the stream rate stays
+ * the same no matter how fast items are processed. A "progress" event is sent on every tick and a
+ * final "complete" (or "error") event when the run ends.
+ */
+@Component
+public class ProgressStreamer {
+    private static final Logger logger = LoggerFactory.getLogger(ProgressStreamer.class);
+
+    private final ProcessingProperties processingProperties;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "processing-progress");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProgressStreamer(ProcessingProperties processingProperties) {
+        this.processingProperties = processingProperties;
+    }
+
+    /**
+     * Opens a stream that reports the given run, once it has started, until it completes.
+     * If the client disconnects, only the stream stops; the run keeps going.
+     * @param started a future completed with the run to report on once it has started
+     * @return the emitter to return from the controller
+     */
+    public SseEmitter stream(CompletableFuture<ProcessingRun> started) {
+        SseEmitter emitter = new SseEmitter(0L);
+        started.whenComplete((run, ex) -> {
+            if (ex != null) {
+                emitter.completeWithError(ex);
+            } else {
+                report(run, emitter);
+            }
+        });
+        return emitter;
+    }
+
+    private void report(ProcessingRun run, SseEmitter emitter) {
+        long intervalMillis = processingProperties.getProgressInterval().toMillis();
+
+        ScheduledFuture<?> ticks = scheduler.scheduleAtFixedRate(() -> send(emitter, "progress", run),
+                0L, intervalMillis, TimeUnit.MILLISECONDS);
+        emitter.onCompletion(() -> ticks.cancel(false));
+        emitter.onTimeout(() -> ticks.cancel(false));
+        emitter.onError(ex -> ticks.cancel(false));
+
+        run.getCompletion().whenComplete((result, ex) -> scheduler.execute(() -> {
+            ticks.cancel(false);
+            if (ex != null) {
+                emitter.completeWithError(ex);
+                return;
+            }
+            if (send(emitter, "complete", run)) {
+                emitter.complete();
+            }
+        }));
+    }
+
+    private boolean send(SseEmitter emitter, String name, ProcessingRun run) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(run.progress()));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Progress stream closed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,14 @@
+package com.siemens.internship.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a set-based processing run.
+ * @param processedIds the IDs of the items moved to PROCESSED, without items deleted while the run was going
+ * @param updatedCount the number of rows updated
+ * @param skippedCount the number of items left as they were, because they were already PROCESSED or had been deleted
+ * @param statementCount the number of SELECT and UPDATE statements issued
+ */
+public record BulkProcessingResult(List<Long> processedIds, int updatedCount, int skippedCount,
+                                   int statementCount) {
+}
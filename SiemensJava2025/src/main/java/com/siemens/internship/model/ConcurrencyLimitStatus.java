@@ -0,0 +1,22 @@
+package com.siemens.internship.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Current state of the adaptive processing concurrency limit.
+ * @param enabled whether the adaptive limit is applied
+ * @param limit the current limit on concurrent database operations
+ * @param inFlight database operations currently running
+ * @param waiting operations waiting for a permit
+ * @param history the most recent limit changes, oldest first
+ */
+public record ConcurrencyLimitStatus(boolean enabled, int limit, int inFlight, int waiting, List<LimitChange> history) {
+
+    /**
+     * @param at when the limit changed
+     * @param limit the new limit
+     */
+    public record LimitChange(Instant at, int limit) {
+    }
+}
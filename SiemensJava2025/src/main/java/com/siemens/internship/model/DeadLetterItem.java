@@ -0,0 +1,41 @@
+package com.siemens.internship.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * An item whose processing kept failing after all retries. There is at most one entry per item:
+ * a later failure of the same item replaces the earlier one, and a successful reprocessing removes it.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+public class DeadLetterItem {
+    public static final int MAX_CAUSE_LENGTH = 1000;
+
+    @Id
+    private Long itemId;
+
+    /**
+     * Exception type and message of the root cause of the last failure.
+     */
+    @Column(length = MAX_CAUSE_LENGTH)
+    private String cause;
+
+    private int attempts;
+    private Instant failedAt;
+
+    public DeadLetterItem(Long itemId, String cause, int attempts, Instant failedAt) {
+        this.itemId = itemId;
+        this.cause = cause;
+        this.attempts = attempts;
+        this.failedAt = failedAt;
+    }
+}
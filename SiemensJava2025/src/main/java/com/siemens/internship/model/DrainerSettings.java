@@ -0,0 +1,10 @@
+package com.siemens.internship.model;
+
+/**
+ * Runtime changes to the background drainer. Fields left null keep their current value.
+ * @param enabled whether to start batches
+ * @param batchSize maximum number of items per batch
+ * @param intervalMillis pause between two batches
+ */
+public record DrainerSettings(Boolean enabled, Integer batchSize, Long intervalMillis) {
+}
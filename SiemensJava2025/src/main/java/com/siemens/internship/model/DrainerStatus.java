@@ -0,0 +1,21 @@
+package com.siemens.internship.model;
+
+import java.time.Instant;
+
+/**
+ * State of the background drainer.
+ * @param enabled whether batches are currently being started
+ * @param batchSize maximum number of items per batch
+ * @param intervalMillis pause between two batches
+ * @param running whether a batch is in progress right now
+ * @param cursor the item ID after which the next batch starts; 0 after a full pass over the table
+ * @param lastBatchAt when the last batch finished, or null if none has run yet
+ * @param lastBatchProcessed items processed by the last batch
+ * @param lastBatchFailed items that failed in the last batch
+ * @param totalProcessed items processed by the drainer since startup
+ * @param totalFailed items that failed in the drainer since startup
+ */
+public record DrainerStatus(boolean enabled, int batchSize, long intervalMillis, boolean running, long cursor,
+                            Instant lastBatchAt, long lastBatchProcessed, long lastBatchFailed,
+                            long totalProcessed, long totalFailed) {
+}
@@ -1,21 +1,31 @@
 package com.siemens.internship.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 
 import jakarta.validation.constraints.Pattern;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.Instant;
+
 @Entity
 @Getter
 @Setter
-@AllArgsConstructor
 @NoArgsConstructor
+@Table(indexes = {
+        @Index(name = "idx_item_status_id", columnList = "status, id"),
+        @Index(name = "idx_item_pending_id", columnList = "pending, id"),
+        @Index(name = "idx_item_email_domain_id", columnList = "email_domain, id")
+})
 public class Item {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -24,6 +34,17 @@ public class Item {
     private String description;
     private String status;
 
+    /**
+     * Whether the item still has to be processed, i.e. its status is not PROCESSED. Computed by the database,
+     * including for rows that existed before the column, so that incremental runs select outstanding items with an
+     * equality on the (pending, id) index instead of a status inequality that has to scan the whole table.
+     */
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @Column(insertable = false, updatable = false,
+            columnDefinition = "BOOLEAN GENERATED ALWAYS AS (status IS NULL OR status <> 'PROCESSED')")
+    private Boolean pending;
+
     /**
      * Added email validation. The email must have the right format and contain at least one domain,
         both example@mail.com and example@mail.co.uk are valid with this regex.
@@ -33,4 +54,36 @@ public class Item {
             message = "Invalid email format! Be sure you entered the right data."
     )
     private String email;
+
+    /**
+     * Domain part of the email, lower-cased. Kept in its own indexed column so that a run over one customer's items
+     * does not have to scan every email address, and computed by the database so that it is also right for rows
+     * written before the column existed or without going through this entity.
+     */
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @Column(insertable = false, updatable = false, columnDefinition = "VARCHAR(255) GENERATED ALWAYS AS "
+            + "(CASE WHEN LOCATE('@', email) > 0 THEN LOWER(SUBSTRING(email, LOCATE('@', email) + 1)) END)")
+    private String emailDomain;
+
+    /**
+     * Lease used to share processing between application instances: the claim token of the batch that owns
+     * the item and when that claim expires. Both are internal and not part of the API, and only written by the
+     * repository's claim and completion queries: saving the entity, e.g. on an update through the API, leaves
+     * them as they are, so it cannot drop a lease another instance still holds.
+     */
+    @JsonIgnore
+    @Column(insertable = false, updatable = false)
+    private String leaseOwner;
+    @JsonIgnore
+    @Column(insertable = false, updatable = false)
+    private Instant leaseExpiresAt;
+
+    public Item(Long id, String name, String description, String status, String email) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.status = status;
+        this.email = email;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.siemens.internship.model;
+
+import java.util.List;
+
+/**
+ * Narrows a processing run to part of the table. Fields left null do not filter. At most one of status, ids
+ * and emailDomain may be set; fromId and toId narrow any of them, or select an ID range on their own.
+ * @param status only items with exactly this status
+ * @param fromId only items whose ID is at least this
+ * @param toId only items whose ID is at most this
+ * @param ids only these items, at most MAX_IDS of them
+ * @param emailDomain only items whose email address is at this domain, e.g. example.com, ignoring case
+ */
+public record ItemFilter(String status, Long fromId, Long toId, List<Long> ids, String emailDomain) {
+    public static final int MAX_IDS = 1000;
+}
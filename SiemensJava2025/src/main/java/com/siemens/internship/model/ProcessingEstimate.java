@@ -0,0 +1,32 @@
+package com.siemens.internship.model;
+
+import java.util.List;
+
+/**
+ * Projected cost of a processing run, from a dry run over a sample of its items.
+ * @param candidateCount items the run would select
+ * @param sampledCount items sampled
+ * @param sampleFailedCount sampled items whose stages failed; the run would retry and possibly dead-letter them
+ * @param changedFraction share of the sampled items the stages changed; only those would be written
+ * @param readMillisPerItem average time to load one item
+ * @param transformMillisPerItem average time to run one item's stages
+ * @param unsampledStages stages with side effects, which the dry run did not run; their time is the one observed in
+ *                        recent runs, or nothing if they have not run since startup
+ * @param writeMillisPerItem average time to write one changed item, from the writes of recent runs
+ * @param writeLatencySource where writeMillisPerItem comes from: "observed" on recent runs, or "read-proxy", the read
+ *                           latency, when no run wrote since startup
+ * @param databaseConcurrency loads and writes the run could have in flight at once
+ * @param itemsInFlight items the run could have in its stages at once
+ * @param projectedDurationMillis projected duration of the run
+ * @param bottleneck what bounds the projected duration: "database", "transform" or "rate-limit"
+ * @param projectedQueries projected SELECT statements: keyset pages and item loads, plus lease lookups
+ * @param projectedRowWrites projected rows updated
+ * @param projectedTransactions projected write transactions
+ */
+public record ProcessingEstimate(long candidateCount, int sampledCount, int sampleFailedCount, double changedFraction,
+                                 double readMillisPerItem, double transformMillisPerItem,
+                                 List<String> unsampledStages, double writeMillisPerItem, String writeLatencySource,
+                                 int databaseConcurrency, int itemsInFlight, long projectedDurationMillis,
+                                 String bottleneck, long projectedQueries, long projectedRowWrites,
+                                 long projectedTransactions) {
+}
@@ -0,0 +1,56 @@
+package com.siemens.internship.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A persisted processing run. The checkpoint is the highest item ID up to which all items have been handled,
+ * so a job interrupted by a restart can continue from there instead of starting over.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+public class ProcessingJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private State state;
+
+    /**
+     * Whether the job only processes items that are not yet PROCESSED.
+     */
+    private boolean incremental;
+
+    private long checkpoint;
+    private long processedCount;
+    private long skippedCount;
+    private long failedCount;
+    private Instant createdAt;
+    private Instant updatedAt;
+
+    /**
+     * Node running the job, and until when it owns it. The owner renews the lease while the job runs;
+     * once the lease has expired, e.g. because the node crashed, another node takes the job over.
+     */
+    private String ownerNode;
+    private Instant leaseExpiresAt;
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+}
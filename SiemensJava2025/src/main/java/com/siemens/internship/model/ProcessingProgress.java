@@ -0,0 +1,17 @@
+package com.siemens.internship.model;
+
+/**
+ * Point-in-time view of a processing run, as pushed to progress stream subscribers.
+ * @param runId ID of the run, see POST /api/items/process/{runId}/cancel
+ * @param processedCount items processed so far
+ * @param skippedCount items left unwritten so far because processing did not change them
+ * @param failedCount items that failed so far
+ * @param expectedCount items the run was expected to cover when it started, or -1 if unknown
+ * @param itemsPerSecond average throughput of the run since it started
+ * @param etaSeconds estimated seconds until the run completes, or null if it cannot be estimated yet
+ * @param checkpoint the highest ID up to which every item has been handled
+ * @param done whether the run has finished
+ */
+public record ProcessingProgress(String runId, long processedCount, long skippedCount, long failedCount, long expectedCount,
+                                 double itemsPerSecond, Long etaSeconds, long checkpoint, boolean done) {
+}
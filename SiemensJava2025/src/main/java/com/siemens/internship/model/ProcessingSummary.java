@@ -0,0 +1,27 @@
+package com.siemens.internship.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Outcome of a processing run without the processed items themselves.
+ * @param runId ID of the run, see POST /api/items/process/{runId}/cancel
+ * @param processedCount items processed successfully
+ * @param skippedCount items not written because processing left them unchanged, e.g. already PROCESSED
+ * @param failedCount items that failed after all retries
+ * @param failedIds IDs of the failed items
+ * @param timedOutCount items that did not finish within the item timeout, or were still in flight at the deadline
+ * @param timedOutIds IDs of the timed-out items
+ * @param deadlineExceeded whether the run was ended by its deadline, leaving the items below unprocessed
+ * @param notStartedIds IDs already handed out to the run whose processing never started (only past the deadline)
+ * @param notStartedAfterId no item with a greater ID was started; null if the run got to the end of its items
+ * @param startedAt when the run started
+ * @param finishedAt when the run finished, or null if it is still running
+ * @param durationMillis time from start to finish (or until now, while running)
+ * @param itemsPerSecond average throughput of the run
+ */
+public record ProcessingSummary(String runId, long processedCount, long skippedCount, long failedCount, List<Long> failedIds,
+                                long timedOutCount, List<Long> timedOutIds, boolean deadlineExceeded, List<Long> notStartedIds,
+                                Long notStartedAfterId, Instant startedAt, Instant finishedAt, long durationMillis,
+                                double itemsPerSecond) {
+}
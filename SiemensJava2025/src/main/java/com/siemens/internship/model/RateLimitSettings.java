@@ -0,0 +1,10 @@
+package com.siemens.internship.model;
+
+/**
+ * Runtime changes to the processing rate limiter. Fields left null keep their current value.
+ * @param enabled whether to apply the rate limit
+ * @param itemsPerSecond rate at which tokens are added
+ * @param burst capacity of the bucket
+ */
+public record RateLimitSettings(Boolean enabled, Double itemsPerSecond, Integer burst) {
+}
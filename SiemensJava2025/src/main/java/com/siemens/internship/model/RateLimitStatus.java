@@ -0,0 +1,12 @@
+package com.siemens.internship.model;
+
+/**
+ * Current state of the processing rate limiter.
+ * @param enabled whether the rate limit is applied
+ * @param itemsPerSecond rate at which tokens are added
+ * @param burst capacity of the bucket
+ * @param availableTokens tokens currently in the bucket
+ * @param waiting items waiting for a token
+ */
+public record RateLimitStatus(boolean enabled, double itemsPerSecond, int burst, double availableTokens, int waiting) {
+}
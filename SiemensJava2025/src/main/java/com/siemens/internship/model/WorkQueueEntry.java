@@ -0,0 +1,29 @@
+package com.siemens.internship.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * An item waiting to be processed because it was created or changed. There is at most one entry per item:
+ * a later change of the same item moves its enqueuedAt forward, and processing the item removes the entry.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+public class WorkQueueEntry {
+    @Id
+    private Long itemId;
+
+    private Instant enqueuedAt;
+
+    public WorkQueueEntry(Long itemId, Instant enqueuedAt) {
+        this.itemId = itemId;
+        this.enqueuedAt = enqueuedAt;
+    }
+}
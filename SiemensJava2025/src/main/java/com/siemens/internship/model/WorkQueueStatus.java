@@ -0,0 +1,19 @@
+package com.siemens.internship.model;
+
+import java.time.Instant;
+
+/**
+ * State of the work queue worker.
+ * @param enabled whether saves queue items and the worker polls the queue
+ * @param batchSize maximum number of items per batch
+ * @param pollIntervalMillis pause after a batch that emptied the queue
+ * @param backlog items currently waiting in the queue
+ * @param running whether a batch is in progress right now
+ * @param lastBatchAt when the last batch finished, or null if none has run yet
+ * @param totalProcessed items processed from the queue since startup
+ * @param totalSkipped queued items left unwritten since startup because processing did not change them
+ * @param totalFailed queued items that failed and were dead-lettered since startup
+ */
+public record WorkQueueStatus(boolean enabled, int batchSize, long pollIntervalMillis, long backlog, boolean running,
+                              Instant lastBatchAt, long totalProcessed, long totalSkipped, long totalFailed) {
+}
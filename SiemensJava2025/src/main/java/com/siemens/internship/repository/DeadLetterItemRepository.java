@@ -0,0 +1,34 @@
+package com.siemens.internship.repository;
+
+import com.siemens.internship.model.DeadLetterItem;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface DeadLetterItemRepository extends JpaRepository<DeadLetterItem, Long> {
+
+    /**
+     * Keyset page over the dead-lettered item IDs, used to reprocess only those items.
+     * @param afterId only IDs strictly greater than this are returned
+     * @param limit maximum number of IDs to return
+     * @return the next page of dead-lettered item IDs in ascending order
+     */
+    @Query("SELECT d.itemId FROM DeadLetterItem d WHERE d.itemId > :afterId ORDER BY d.itemId")
+    List<Long> findItemIdsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Removes the entries of the given items that were not written again since the given instant,
+     * i.e. the items that did not fail again while being reprocessed.
+     * @return the number of entries removed
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM DeadLetterItem d WHERE d.itemId IN :itemIds AND d.failedAt < :before")
+    int deleteResolved(@Param("itemIds") List<Long> itemIds, @Param("before") Instant before);
+}
@@ -1,12 +1,216 @@
 package com.siemens.internship.repository;
 
 import com.siemens.internship.model.Item;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
 
 public interface ItemRepository extends JpaRepository<Item, Long> {
     @Query("SELECT id FROM Item")
     List<Long> findAllIds();
+
+    /**
+     * Keyset pagination over item IDs: returns the next IDs strictly greater than afterId, in ascending order.
+     * Unlike OFFSET paging, the cost of each page does not grow with how far into the table we are.
+     * @param afterId the last ID of the previous page (use 0 for the first page)
+     * @param limit the maximum number of IDs to return
+     * @return the next page of IDs, empty when the table is exhausted
+     */
+    @Query("SELECT i.id FROM Item i WHERE i.id > :afterId ORDER BY i.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Keyset pagination over the IDs of items that are not yet PROCESSED, served by the (pending, id) index
+     * so that repeated runs only touch outstanding rows. Ordering by pending as well, although it is constant here,
+     * lets the database read the page in index order and stop after limit rows instead of sorting all pending rows.
+     * @param afterId the last ID of the previous page (use 0 for the first page)
+     * @param limit the maximum number of IDs to return
+     * @return the next page of IDs, empty when no outstanding items are left
+     */
+    @Query("SELECT i.id FROM Item i WHERE i.pending = true AND i.id > :afterId ORDER BY i.pending, i.id")
+    List<Long> findPendingIdsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * The smallest and largest item ID, bounding the range that partitioned processing splits up.
+     * @return the bounds, or null if the table is empty
+     */
+    @Query("SELECT MIN(i.id) FROM Item i")
+    Long findMinId();
+
+    @Query("SELECT MAX(i.id) FROM Item i")
+    Long findMaxId();
+
+    /**
+     * Range query over item IDs, used by partitioned processing to probe and load one sub-range.
+     * @param fromId the lower bound, inclusive
+     * @param toId the upper bound, inclusive
+     * @param limit the maximum number of IDs to return
+     * @return the first IDs of the range in ascending order
+     */
+    @Query("SELECT i.id FROM Item i WHERE i.id BETWEEN :fromId AND :toId ORDER BY i.id")
+    List<Long> findIdsBetween(@Param("fromId") Long fromId, @Param("toId") Long toId, Limit limit);
+
+    /**
+     * Like findIdsBetween, restricted to items that are not yet PROCESSED.
+     */
+    @Query("SELECT i.id FROM Item i WHERE i.pending = true AND i.id BETWEEN :fromId AND :toId " +
+            "ORDER BY i.pending, i.id")
+    List<Long> findPendingIdsBetween(@Param("fromId") Long fromId, @Param("toId") Long toId, Limit limit);
+
+    /**
+     * Keyset pagination over the IDs of items with the given status, up to toId, served by the (status, id) index.
+     * @param afterId the last ID of the previous page (use 0 for the first page)
+     * @param toId the upper bound, inclusive
+     * @param status the status to select
+     * @param limit the maximum number of IDs to return
+     * @return the next page of IDs, empty when no such items are left
+     */
+    @Query("SELECT i.id FROM Item i WHERE i.status = :status AND i.id > :afterId AND i.id <= :toId ORDER BY i.id")
+    List<Long> findIdsAfterWithStatus(@Param("afterId") Long afterId, @Param("toId") Long toId,
+                                      @Param("status") String status, Limit limit);
+
+    /**
+     * Keyset pagination over the IDs of items whose email is at the given domain, up to toId,
+     * served by the (emailDomain, id) index.
+     * @param afterId the last ID of the previous page (use 0 for the first page)
+     * @param toId the upper bound, inclusive
+     * @param emailDomain the lower-cased domain to select
+     * @param limit the maximum number of IDs to return
+     * @return the next page of IDs, empty when no such items are left
+     */
+    @Query("SELECT i.id FROM Item i WHERE i.emailDomain = :emailDomain AND i.id > :afterId AND i.id <= :toId " +
+            "ORDER BY i.id")
+    List<Long> findIdsAfterWithEmailDomain(@Param("afterId") Long afterId, @Param("toId") Long toId,
+                                           @Param("emailDomain") String emailDomain, Limit limit);
+
+    /**
+     * Keyset pagination over those of the given IDs that exist, up to toId, by primary key lookups.
+     * @param ids the IDs to select
+     * @param afterId the last ID of the previous page (use 0 for the first page)
+     * @param toId the upper bound, inclusive
+     * @param limit the maximum number of IDs to return
+     * @return the next page of IDs, empty when none of the given items are left
+     */
+    @Query("SELECT i.id FROM Item i WHERE i.id IN :ids AND i.id > :afterId AND i.id <= :toId ORDER BY i.id")
+    List<Long> findIdsInAfter(@Param("ids") List<Long> ids, @Param("afterId") Long afterId, @Param("toId") Long toId,
+                              Limit limit);
+
+    /**
+     * Counts of the items selected by the filtered keyset queries above, used to estimate how long a run will take.
+     */
+    @Query("SELECT COUNT(i) FROM Item i WHERE i.id BETWEEN :fromId AND :toId")
+    long countBetween(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Query("SELECT COUNT(i) FROM Item i WHERE i.status = :status AND i.id BETWEEN :fromId AND :toId")
+    long countWithStatusBetween(@Param("status") String status, @Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Query("SELECT COUNT(i) FROM Item i WHERE i.emailDomain = :emailDomain AND i.id BETWEEN :fromId AND :toId")
+    long countWithEmailDomainBetween(@Param("emailDomain") String emailDomain, @Param("fromId") Long fromId,
+                                     @Param("toId") Long toId);
+
+    @Query("SELECT COUNT(i) FROM Item i WHERE i.id IN :ids AND i.id BETWEEN :fromId AND :toId")
+    long countInBetween(@Param("ids") List<Long> ids, @Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    /**
+     * Counts the items that are not yet PROCESSED; the incremental counterpart of count(), used to estimate
+     * how long a run will take.
+     * @return the number of such items
+     */
+    @Query("SELECT COUNT(i) FROM Item i WHERE i.pending = true")
+    long countPending();
+
+    /**
+     * Set-based status transition: updates those of the given items that are not already in the status with a single
+     * UPDATE statement in its own transaction, without loading the entities.
+     * @param ids the IDs of the items to update, typically one keyset page
+     * @param status the new status
+     * @return the number of rows updated
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Item i SET i.status = :status WHERE i.id IN :ids AND (i.status IS NULL OR i.status <> :status)")
+    int updateStatusByIds(@Param("ids") List<Long> ids, @Param("status") String status);
+
+    /**
+     * Locks the rows of those of the given items that still exist and are not already in the status, so they can be
+     * neither deleted nor moved to it by someone else before the end of the surrounding transaction.
+     * @param ids the IDs of the items to lock
+     * @param status the status to exclude
+     * @return the IDs of the locked rows in ascending order
+     */
+    @Query(value = "SELECT id FROM item WHERE id IN (:ids) AND (status IS NULL OR status <> :status) " +
+            "ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockIdsWithStatusNot(@Param("ids") List<Long> ids, @Param("status") String status);
+
+    /**
+     * Set-based status transition that knows exactly which rows it changed: the rows still present and not yet in
+     * the status are locked and then updated with one UPDATE, in a single transaction, so neither an item deleted in
+     * between nor one that already had the status is reported or rewritten.
+     * @param ids the IDs of the items to update, typically one keyset page
+     * @param status the new status
+     * @return the IDs of the items updated, in ascending order
+     */
+    @Transactional
+    default List<Long> transitionStatus(List<Long> ids, String status) {
+        List<Long> locked = lockIdsWithStatusNot(ids, status);
+        if (!locked.isEmpty()) {
+            updateStatusByIds(locked, status);
+        }
+        return locked;
+    }
+
+    /**
+     * Keyset pagination over the IDs of items that can be claimed: not yet PROCESSED and without an unexpired lease.
+     * @param afterId the last ID of the previous page (use 0 for the first page)
+     * @param now the current time; leases expiring before it are considered free
+     * @param limit the maximum number of IDs to return
+     * @return the next page of claim candidates
+     */
+    @Query("SELECT i.id FROM Item i WHERE i.pending = true AND i.id > :afterId " +
+            "AND (i.leaseExpiresAt IS NULL OR i.leaseExpiresAt < :now) ORDER BY i.pending, i.id")
+    List<Long> findClaimableIdsAfter(@Param("afterId") Long afterId, @Param("now") Instant now, Limit limit);
+
+    /**
+     * Atomically takes a lease on those of the given items that are still claimable. Rows claimed by another
+     * instance in the meantime are left untouched, so every row ends up with exactly one owner.
+     * @param ids the claim candidates
+     * @param owner the claim token, unique per batch
+     * @param expiresAt when the lease expires if it is not completed
+     * @param now the current time
+     * @return the number of rows claimed
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Item i SET i.leaseOwner = :owner, i.leaseExpiresAt = :expiresAt WHERE i.id IN :ids " +
+            "AND i.pending = true AND (i.leaseExpiresAt IS NULL OR i.leaseExpiresAt < :now)")
+    int claimLeases(@Param("ids") List<Long> ids, @Param("owner") String owner, @Param("expiresAt") Instant expiresAt,
+                    @Param("now") Instant now);
+
+    /**
+     * @param ids the claim candidates
+     * @param owner the claim token
+     * @return the IDs among the candidates that are leased by the given token
+     */
+    @Query("SELECT i.id FROM Item i WHERE i.id IN :ids AND i.leaseOwner = :owner ORDER BY i.id")
+    List<Long> findIdsByLeaseOwner(@Param("ids") List<Long> ids, @Param("owner") String owner);
+
+    /**
+     * Writes the processed state of a leased item, every field processing may change, and releases the lease,
+     * but only if the lease is still ours.
+     * @param item the processed item
+     * @param owner the claim token
+     * @return 1 if the item was updated, 0 if the lease expired and was taken over by another instance
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Item i SET i.name = :#{#item.name}, i.description = :#{#item.description}, " +
+            "i.status = :#{#item.status}, i.email = :#{#item.email}, i.leaseOwner = NULL, i.leaseExpiresAt = NULL " +
+            "WHERE i.id = :#{#item.id} AND i.leaseOwner = :owner")
+    int completeLease(@Param("item") Item item, @Param("owner") String owner);
 }
@@ -0,0 +1,69 @@
+package com.siemens.internship.repository;
+
+import com.siemens.internship.model.ProcessingJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ProcessingJobRepository extends JpaRepository<ProcessingJob, Long> {
+    /**
+     * Finds the RUNNING jobs no node owns any more: those whose lease has expired or was never set, and those
+     * owned by ownNode, e.g. this node before a restart.
+     * @param ownNode node whose jobs are returned even with a live lease, or null for none
+     */
+    @Query("SELECT j FROM ProcessingJob j WHERE j.state = com.siemens.internship.model.ProcessingJob.State.RUNNING " +
+            "AND (j.leaseExpiresAt IS NULL OR j.leaseExpiresAt < :now OR j.ownerNode = :ownNode) ORDER BY j.id")
+    List<ProcessingJob> findOrphaned(@Param("ownNode") String ownNode, @Param("now") Instant now);
+
+    /**
+     * Makes owner the owner of a job found by findOrphaned, if it is still orphaned. Of several nodes trying
+     * to take over the same job, only one updates the row.
+     * @return 1 if owner now owns the job, otherwise 0
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ProcessingJob j SET j.ownerNode = :owner, j.leaseExpiresAt = :expiresAt " +
+            "WHERE j.id = :id AND j.state = com.siemens.internship.model.ProcessingJob.State.RUNNING " +
+            "AND (j.leaseExpiresAt IS NULL OR j.leaseExpiresAt < :now OR j.ownerNode = :ownNode)")
+    int takeOver(@Param("id") Long id, @Param("owner") String owner, @Param("expiresAt") Instant expiresAt,
+                 @Param("ownNode") String ownNode, @Param("now") Instant now);
+
+    /**
+     * Extends the lease of a running job, if owner still owns it.
+     * @return 1 if the lease was renewed, 0 if the job has another owner or is no longer RUNNING
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ProcessingJob j SET j.leaseExpiresAt = :expiresAt WHERE j.id = :id AND j.ownerNode = :owner " +
+            "AND j.state = com.siemens.internship.model.ProcessingJob.State.RUNNING")
+    int renewLease(@Param("id") Long id, @Param("owner") String owner, @Param("expiresAt") Instant expiresAt);
+
+    /**
+     * Records the progress of a running job without loading and merging the entity, if owner still owns it.
+     * @return the number of rows updated, 0 if the job has another owner
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ProcessingJob j SET j.checkpoint = :checkpoint, j.processedCount = :processedCount, " +
+            "j.skippedCount = :skippedCount, j.failedCount = :failedCount, j.updatedAt = :updatedAt " +
+            "WHERE j.id = :id AND j.ownerNode = :owner")
+    int updateProgress(@Param("id") Long id, @Param("owner") String owner, @Param("checkpoint") long checkpoint,
+                       @Param("processedCount") long processedCount, @Param("skippedCount") long skippedCount,
+                       @Param("failedCount") long failedCount, @Param("updatedAt") Instant updatedAt);
+
+    /**
+     * Records the final state of a job and releases its lease, if owner still owns it.
+     * @return the number of rows updated, 0 if the job has another owner
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ProcessingJob j SET j.state = :state, j.updatedAt = :updatedAt, j.leaseExpiresAt = NULL " +
+            "WHERE j.id = :id AND j.ownerNode = :owner")
+    int finish(@Param("id") Long id, @Param("owner") String owner, @Param("state") ProcessingJob.State state,
+               @Param("updatedAt") Instant updatedAt);
+}
@@ -0,0 +1,47 @@
+package com.siemens.internship.repository;
+
+import com.siemens.internship.model.WorkQueueEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface WorkQueueRepository extends JpaRepository<WorkQueueEntry, Long> {
+
+    /**
+     * Keyset page over the queued item IDs, so polling costs as much as the backlog, not the item table.
+     * @param afterId only IDs strictly greater than this are returned
+     * @param limit maximum number of IDs to return
+     * @return the next page of queued item IDs in ascending order
+     */
+    @Query("SELECT q.itemId FROM WorkQueueEntry q WHERE q.itemId > :afterId ORDER BY q.itemId")
+    List<Long> findItemIdsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Queues an item, or moves its entry forward if it is already queued, with one upsert. Unlike save, which looks
+     * the entry up first because its ID is assigned, concurrent saves of the same item cannot both try to insert it
+     * and fail the second one on a duplicate key.
+     * @param itemId the ID of the item to queue
+     * @param enqueuedAt when the item was changed
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "MERGE INTO work_queue_entry (item_id, enqueued_at) KEY (item_id) VALUES (:itemId, :enqueuedAt)",
+            nativeQuery = true)
+    void enqueue(@Param("itemId") Long itemId, @Param("enqueuedAt") Instant enqueuedAt);
+
+    /**
+     * Removes the entries of the given items that were not queued again since the given instant,
+     * i.e. keeps the items changed again while they were being processed.
+     * @return the number of entries removed
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM WorkQueueEntry q WHERE q.itemId IN :itemIds AND q.enqueuedAt < :before")
+    int deleteDequeued(@Param("itemIds") List<Long> itemIds, @Param("before") Instant before);
+}
@@ -0,0 +1,194 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.ConcurrencyLimitStatus;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Limits how many processing database operations run at the same time, adjusting the limit from their
+ * measured latency with AIMD: every fast operation adds 1/limit (about +1 per window of operations, but only
+ * while the limit is actually being used), and a slow one multiplies the limit by the backoff ratio, at most
+ * once per window so that a single slow burst does not collapse it.
+ * The limit never exceeds the number of operations the processing executor can run at once: the FIXED pool size, or
+ * the BOUNDED_VIRTUAL permits when set. Permits beyond that would only queue on the executor, where a slow operation's
+ * latency counts against the ones stuck behind it, and the limit would grow without adding any concurrency.
+ * Waiting for a permit is non-blocking: operations over the limit are queued as futures.
+ * The limit is published as the processing.concurrency.limit gauge; every change is also recorded in
+ * the processing.concurrency.limit.changes summary and in a short in-memory history.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+    private static final int HISTORY_SIZE = 100;
+
+    private final ProcessingProperties.AdaptiveLimit settings;
+    private final int maxLimit;
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private final Deque<ConcurrencyLimitStatus.LimitChange> history = new ArrayDeque<>();
+    private DistributionSummary limitChanges;
+
+    private double limit;
+    private int inFlight;
+    private int samplesSinceDecrease;
+
+    public AdaptiveConcurrencyLimiter(ProcessingProperties processingProperties) {
+        this.settings = processingProperties.getAdaptiveLimit();
+        this.maxLimit = Math.max(1, Math.min(settings.getMaxLimit(), executorConcurrency(processingProperties)));
+        this.limit = Math.min(settings.getInitialLimit(), maxLimit);
+        history.add(new ConcurrencyLimitStatus.LimitChange(Instant.now(), currentLimit()));
+    }
+
+    /**
+     * @return how many operations the processing executor runs at once, or Integer.MAX_VALUE if it does not bound them
+     */
+    private static int executorConcurrency(ProcessingProperties properties) {
+        return switch (properties.getExecutorStrategy()) {
+            case FIXED -> properties.getPoolSize();
+            case VIRTUAL -> Integer.MAX_VALUE;
+            case BOUNDED_VIRTUAL -> properties.getMaxConcurrency() > 0
+                    ? properties.getMaxConcurrency()
+                    : Integer.MAX_VALUE;
+        };
+    }
+
+    /**
+     * Runs a database operation on the executor once a permit is available, and feeds its latency back into the limit.
+     * When the adaptive limit is disabled the operation is submitted right away.
+     * @param operation the database operation
+     * @param executor the executor to run it on
+     * @return a future completed with the operation's result
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> operation, Executor executor) {
+        return submit(operation, 1, executor);
+    }
+
+    /**
+     * Like submit(operation, executor), for an operation that covers several rows (e.g. a batch write);
+     * its latency is divided by the row count before being compared with the threshold.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> operation, int rows, Executor executor) {
+        if (!settings.isEnabled()) {
+            return CompletableFuture.supplyAsync(operation, executor);
+        }
+        return acquire().thenCompose(permit -> {
+            try {
+                return CompletableFuture.supplyAsync(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        return operation.get();
+                    } finally {
+                        release((System.nanoTime() - start) / Math.max(1, rows));
+                    }
+                }, executor);
+            } catch (RuntimeException e) {
+                release(-1L);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Runnable variant of submit, for writes.
+     */
+    public CompletableFuture<Void> run(Runnable operation, int rows, Executor executor) {
+        return submit(() -> {
+            operation.run();
+            return null;
+        }, rows, executor);
+    }
+
+    /**
+     * @return the current limit, the number of operations in flight and waiting, and the recent limit history
+     */
+    public synchronized ConcurrencyLimitStatus status() {
+        return new ConcurrencyLimitStatus(settings.isEnabled(), currentLimit(), inFlight, waiters.size(),
+                new ArrayList<>(history));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("processing.concurrency.limit", this, limiter -> limiter.status().limit())
+                .description("Current adaptive limit on concurrent processing database operations")
+                .register(registry);
+        Gauge.builder("processing.concurrency.inflight", this, limiter -> limiter.status().inFlight())
+                .description("Processing database operations currently running")
+                .register(registry);
+        limitChanges = DistributionSummary.builder("processing.concurrency.limit.changes")
+                .description("Values taken by the adaptive concurrency limit")
+                .register(registry);
+    }
+
+    private synchronized CompletableFuture<Void> acquire() {
+        if (inFlight < currentLimit()) {
+            inFlight++;
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        return waiter;
+    }
+
+    /**
+     * Returns a permit and hands it to waiting operations while the (possibly changed) limit allows.
+     * @param latencyNanos the operation's latency per row, or a negative value if it never ran
+     */
+    private void release(long latencyNanos) {
+        List<CompletableFuture<Void>> admitted = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            if (latencyNanos >= 0) {
+                onSample(latencyNanos);
+            }
+            while (!waiters.isEmpty() && inFlight < currentLimit()) {
+                inFlight++;
+                admitted.add(waiters.poll());
+            }
+        }
+        // Completed outside the lock: the waiters' continuations submit their operations right away
+        admitted.forEach(waiter -> waiter.complete(null));
+    }
+
+    private void onSample(long latencyNanos) {
+        int before = currentLimit();
+        samplesSinceDecrease++;
+        if (latencyNanos > settings.getLatencyThreshold().toNanos()) {
+            if (samplesSinceDecrease >= before) {
+                limit = Math.max(settings.getMinLimit(), limit * settings.getBackoffRatio());
+                samplesSinceDecrease = 0;
+            }
+        } else if (inFlight * 2 >= before) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+
+        int after = currentLimit();
+        if (after != before) {
+            logger.debug("Processing concurrency limit changed from {} to {}", before, after);
+            history.add(new ConcurrencyLimitStatus.LimitChange(Instant.now(), after));
+            if (history.size() > HISTORY_SIZE) {
+                history.poll();
+            }
+            if (limitChanges != null) {
+                limitChanges.record(after);
+            }
+        }
+    }
+
+    private int currentLimit() {
+        return (int) limit;
+    }
+}
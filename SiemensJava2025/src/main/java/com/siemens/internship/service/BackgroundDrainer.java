@@ -0,0 +1,165 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.DrainerSettings;
+import com.siemens.internship.model.DrainerStatus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Processes unprocessed items continuously, in batches of at most batchSize items with a pause of
+ * interval between batches, so new items are picked up within a bounded delay and the database sees
+ * a steady trickle instead of one large run.
+ * Consecutive batches continue where the previous one stopped and wrap around at the end of the table,
+ * so items that keep failing are retried once per pass rather than blocking every batch.
+ * The next batch is only scheduled once the previous one completed, so batches never overlap.
+ */
+@Service
+public class BackgroundDrainer {
+    private static final Logger logger = LoggerFactory.getLogger(BackgroundDrainer.class);
+
+    private final ItemService itemService;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "processing-drainer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean enabled;
+    private volatile int batchSize;
+    private volatile long intervalMillis;
+    private volatile boolean running;
+    private volatile long cursor;
+    private volatile Instant lastBatchAt;
+    private volatile long lastBatchProcessed;
+    private volatile long lastBatchFailed;
+    private final AtomicLong totalProcessed = new AtomicLong();
+    private final AtomicLong totalFailed = new AtomicLong();
+
+    public BackgroundDrainer(ItemService itemService, ProcessingProperties processingProperties) {
+        this.itemService = itemService;
+        ProcessingProperties.Drainer drainer = processingProperties.getDrainer();
+        this.enabled = drainer.isEnabled();
+        this.batchSize = Math.max(1, drainer.getBatchSize());
+        this.intervalMillis = Math.max(1L, drainer.getInterval().toMillis());
+    }
+
+    /**
+     * Starts the drain loop once the application is ready. While disabled the loop only checks the
+     * setting on every interval.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduleNext();
+    }
+
+    /**
+     * Applies runtime changes; a new batch size or interval takes effect from the next batch.
+     * @param settings the settings to change, null fields are left as they are
+     * @return the drainer status after the change
+     * @throws IllegalArgumentException if the batch size or interval is not positive; nothing is changed then
+     */
+    public DrainerStatus update(DrainerSettings settings) {
+        if (settings.batchSize() != null && settings.batchSize() <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (settings.intervalMillis() != null && settings.intervalMillis() <= 0) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        if (settings.batchSize() != null) {
+            batchSize = settings.batchSize();
+        }
+        if (settings.intervalMillis() != null) {
+            intervalMillis = settings.intervalMillis();
+        }
+        if (settings.enabled() != null) {
+            enabled = settings.enabled();
+            logger.info("Background drainer {}", enabled ? "enabled" : "disabled");
+        }
+        return status();
+    }
+
+    /**
+     * @return the current settings and the outcome of recent batches
+     */
+    public DrainerStatus status() {
+        return new DrainerStatus(enabled, batchSize, intervalMillis, running, cursor, lastBatchAt,
+                lastBatchProcessed, lastBatchFailed, totalProcessed.get(), totalFailed.get());
+    }
+
+    private void tick() {
+        if (!enabled) {
+            scheduleNext();
+            return;
+        }
+        drainOnce().whenComplete((run, ex) -> scheduleNext());
+    }
+
+    /**
+     * Runs one batch of at most batchSize unprocessed items after the cursor, and moves the cursor past it.
+     * The batch only runs if no other run holds the node's processing slot; otherwise it is left to the next tick.
+     * @return a future completed with the batch's run, with null if the batch was left out, or exceptionally
+     * if the batch could not run
+     */
+    CompletableFuture<ProcessingRun> drainOnce() {
+        int limit = batchSize;
+        ProcessingRun run = new ProcessingRun(true, cursor, 0L, 0L);
+        run.setItemLimit(limit);
+
+        CompletableFuture<ProcessingRun> batch;
+        try {
+            Optional<CompletableFuture<ProcessingRun>> started = itemService.ifIdle(() -> itemService.process(run));
+            if (started.isEmpty()) {
+                logger.debug("Another run is in progress, skipping this background drain batch");
+                return CompletableFuture.completedFuture(null);
+            }
+            running = true;
+            batch = started.get();
+        } catch (RuntimeException e) {
+            batch = CompletableFuture.failedFuture(e);
+        }
+        return batch.whenComplete((completed, ex) -> {
+            running = false;
+            if (ex != null) {
+                logger.warn("Background drain batch failed: {}", ex.toString());
+                return;
+            }
+            // A short batch means the end of the table was reached; the next pass starts over
+            cursor = completed.getIssuedCount() < limit ? 0L : completed.getCheckpoint();
+            lastBatchAt = Instant.now();
+            lastBatchProcessed = completed.getProcessedCount();
+            lastBatchFailed = completed.getFailedCount();
+            totalProcessed.addAndGet(lastBatchProcessed);
+            totalFailed.addAndGet(lastBatchFailed);
+            if (lastBatchProcessed + lastBatchFailed > 0) {
+                logger.debug("Background drain processed {} items, {} failed", lastBatchProcessed, lastBatchFailed);
+            }
+        });
+    }
+
+    private void scheduleNext() {
+        try {
+            scheduler.schedule(this::tick, intervalMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
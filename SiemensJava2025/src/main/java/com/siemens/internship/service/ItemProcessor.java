@@ -0,0 +1,36 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.model.Item;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Extension point for the per-item work of a processing run.
+ * Every ItemProcessor bean is a stage: ItemService loads the item, passes it through all stages in
+ * {@link org.springframework.core.annotation.Order} order and then writes the result.
+ * Stages must not block: waiting (timers, remote calls) should be expressed through the returned stage, so a
+ * small pool can keep many items in flight. Continuations may run on whatever thread completes the stage.
+ * If a run is cancelled, the future returned by a pending stage is cancelled as well.
+ * <p>
+ * A stage's only effect should be on the item it returns. ProcessingEstimator relies on this: its dry run passes
+ * detached copies of sampled items through every stage and discards the results. A stage that does anything else
+ * (calls a remote service, sends a message, writes to a store) must opt out through {@link #isSampleable()}.
+ */
+public interface ItemProcessor {
+
+    /**
+     * Processes one item.
+     * @param item the loaded item, already transformed by the previous stages
+     * @return a stage completed with the item to hand to the next stage (or to write)
+     */
+    CompletionStage<Item> process(Item item);
+
+    /**
+     * Whether the dry run may call {@link #process} on a copy of a sampled item. A stage with side effects
+     * returns false; the estimate then leaves it out of the sample and uses the time it took in recent runs.
+     * @return true if process has no effect beyond the item it returns
+     */
+    default boolean isSampleable() {
+        return true;
+    }
+}
@@ -1,19 +1,44 @@
 package com.siemens.internship.service;
 
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.BulkProcessingResult;
+import com.siemens.internship.model.DeadLetterItem;
 import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ItemFilter;
+import com.siemens.internship.model.ProcessingSummary;
+import com.siemens.internship.repository.DeadLetterItemRepository;
 import com.siemens.internship.repository.ItemRepository;
+import com.siemens.internship.repository.WorkQueueRepository;
 import lombok.Getter;
 import lombok.Setter;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 
 
@@ -22,15 +47,73 @@ public class ItemService {
     private static final Logger logger = LoggerFactory.getLogger(ItemService.class);
 
     private final ItemRepository itemRepository;
-    private static final ExecutorService executor = Executors.newFixedThreadPool(10);
+    private final ProcessingProperties processingProperties;
+    private final ExecutorService executor;
+    private final List<ItemProcessor> itemProcessors;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final DeadLetterItemRepository deadLetterRepository;
+    private final ProcessingRateLimiter rateLimiter;
+    private final WorkQueueRepository workQueueRepository;
+    /** Runs partitioned processing; joins inside it are managed, so the pool compensates for blocked workers. */
+    private final ForkJoinPool partitionPool;
+    /**
+     * Takes over the continuations of futures completed by timers: the stage timer, the rate limiter, item timeouts
+     * and retry delays. A timer thread then only completes a future; submitting the database work that follows, which
+     * may run on the submitting thread or block it under the CALLER_RUNS and BLOCK rejection policies, happens here.
+     * The tasks are short and the queue unbounded, so a handoff itself is never rejected.
+     */
+    private final ExecutorService handoffExecutor;
+    /**
+     * This node's processing slot, held by the run in progress, whatever its kind: on-demand, filtered, partitioned,
+     * staged, bulk, a job or a background batch. Runs never overlap on a node, so they do not compete for the
+     * executor, the connections and the rate limit, and a request never doubles the load of the run it duplicates.
+     */
+    private final AtomicReference<Slot> slot = new AtomicReference<>();
+    /** Runs in progress on this node by ID, so that clients can list and cancel them. */
+    private final Map<String, ProcessingRun> activeRuns = new ConcurrentHashMap<>();
     @Getter
     @Setter
     private List<Item> processedItems = new ArrayList<>();
     @Getter
     private int processedCount = 0;
+    /** Moving average of the time it took to write one item, in nanoseconds, or 0 before the first write. */
+    private final AtomicLong writeNanosPerItem = new AtomicLong();
+    /** Moving average of the time each stage took for one item, in nanoseconds, once the stage has completed one. */
+    private final Map<ItemProcessor, AtomicLong> stageNanosPerItem = new ConcurrentHashMap<>();
 
-    public ItemService(ItemRepository itemRepository) {
+    public ItemService(ItemRepository itemRepository, ProcessingProperties processingProperties,
+                       @Qualifier("processingExecutor") ExecutorService executor, List<ItemProcessor> itemProcessors,
+                       AdaptiveConcurrencyLimiter concurrencyLimiter, DeadLetterItemRepository deadLetterRepository,
+                       ProcessingRateLimiter rateLimiter, WorkQueueRepository workQueueRepository) {
         this.itemRepository = itemRepository;
+        this.processingProperties = processingProperties;
+        this.executor = executor;
+        this.itemProcessors = itemProcessors;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.deadLetterRepository = deadLetterRepository;
+        this.rateLimiter = rateLimiter;
+        this.workQueueRepository = workQueueRepository;
+        int parallelism = processingProperties.getPartitionParallelism() > 0
+                ? processingProperties.getPartitionParallelism()
+                : Math.max(1, processingProperties.getPoolSize());
+        this.partitionPool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("processing-partition-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        AtomicInteger handoffThreads = new AtomicInteger();
+        this.handoffExecutor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "processing-handoff-" + handoffThreads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partitionPool.shutdownNow();
+        handoffExecutor.shutdownNow();
     }
 
     /**
@@ -51,12 +134,18 @@ public class ItemService {
     }
 
     /**
-     * Saves an item to the database.
+     * Saves an item to the database. With the work queue enabled, the item is queued for processing
+     * in the same transaction, so a committed change is never missed and a rolled-back one never queued.
      * @param item the item to save
      * @return the saved item
      */
+    @Transactional
     public Item save(Item item) {
-        return itemRepository.save(item);
+        Item saved = itemRepository.save(item);
+        if (processingProperties.getWorkQueue().isEnabled()) {
+            workQueueRepository.enqueue(saved.getId(), Instant.now());
+        }
+        return saved;
     }
 
     /**
@@ -88,37 +177,1056 @@ public class ItemService {
 
     /**
      * Asynchronously processes all items:
-     * - Retrieves all item IDs
-     * - Loads and updates each item in parallel using a thread pool
-     * - Sets their status to "PROCESSED" and saves them back to the database
+     * - Pages through the item IDs using keyset pagination (WHERE id > lastId ORDER BY id)
+     * - Processes each page as a chunk, with at most maxInFlightChunks chunks running at the same time
+     * - Loads each item, passes it through the ItemProcessor stages (by default: simulated work, then
+     *   status "PROCESSED") and saves it back to the database, unless the stages left it unchanged
+     * - Retries items that fail with exponential backoff; items that still fail go to the dead-letter table
      * - Tracks and returns a list of successfully processed items
+     * Only chunkSize * maxInFlightChunks IDs and futures exist at any moment, so memory use for the
+     * work queue stays flat regardless of the table size.
+     *
+     * Concurrent calls share the run already in progress, see processItemsAsync(incremental, force).
      *
      * @return a CompletableFuture containing the list of processed items
      */
     @Async
     public CompletableFuture<List<Item>> processItemsAsync() {
-        List<Long> itemIds = itemRepository.findAllIds();
-        List<Item> processedItems = new CopyOnWriteArrayList<>();
-
-        List<CompletableFuture<Void>> futures = itemIds.stream()
-                .map(id -> CompletableFuture.runAsync(()-> {
-                    try {
-                        Thread.sleep(150);
-
-                        Optional<Item> optionalItem = itemRepository.findById(id);
-                        if(optionalItem.isEmpty())
-                            return;
-
-                        Item item = optionalItem.get();
-                        item.setStatus("PROCESSED");
-                        itemRepository.save(item);
-                        processedItems.add(item);
-                    } catch (Exception e) {
-                        logger.error("Error processing item with ID: {}", id, e);
+        return processItemsAsync(false, false);
+    }
+
+    /**
+     * Incremental variant of processItemsAsync: only items whose status is not yet PROCESSED are
+     * selected, so a repeated run costs time proportional to the new work rather than to the table size.
+     *
+     * @return a CompletableFuture containing the list of processed items
+     */
+    public CompletableFuture<List<Item>> processUnprocessedItemsAsync() {
+        return processItemsAsync(true, false);
+    }
+
+    /**
+     * Processes all items, or only unprocessed ones, as described on processItemsAsync.
+     * Requests are single-flight: while a run over the same items is in progress on this node, a new
+     * request attaches to it and receives its result instead of starting another run, so a burst of
+     * retries costs one run rather than one per request. While any other run holds the node's processing
+     * slot, the request waits for it to end, see acquireRun.
+     *
+     * @param incremental if true, only items that are not yet PROCESSED are processed
+     * @param force if true, the request starts a run of its own instead of attaching to the one in progress
+     * @return a CompletableFuture containing the list of processed items
+     */
+    public CompletableFuture<List<Item>> processItemsAsync(boolean incremental, boolean force) {
+        return processItemsRunAsync(incremental, force).thenApply(ProcessingRun::getProcessedItems);
+    }
+
+    /**
+     * Like processItemsAsync, but completes with the run itself, so that callers can tell a complete list of
+     * processed items from the partial one of a run that passed its deadline.
+     *
+     * @param incremental if true, only items that are not yet PROCESSED are processed
+     * @param force if true, the request starts a run of its own instead of attaching to the one in progress
+     * @return a CompletableFuture containing the finished run, with its processed items
+     */
+    public CompletableFuture<ProcessingRun> processItemsRunAsync(boolean incremental, boolean force) {
+        return acquireRun(scopeOf(incremental), force, true, null)
+                .thenCompose(ProcessingRun::getCompletion);
+    }
+
+    /**
+     * Retrieves the items whose processing failed after all retries, with the cause of their last failure.
+     * @return all dead-letter entries
+     */
+    public List<DeadLetterItem> findDeadLetters() {
+        return deadLetterRepository.findAll();
+    }
+
+    /**
+     * Processes only the dead-lettered items, paging through the dead-letter table the same way
+     * processItemsAsync pages through the items. Entries of items that now succeed are removed;
+     * items that fail again keep an entry with the new cause. Single-flight like processItemsAsync.
+     *
+     * @param force if true, the request starts a run of its own instead of attaching to the one in progress
+     * @return a CompletableFuture containing the list of items processed successfully this time
+     */
+    public CompletableFuture<List<Item>> reprocessDeadLettersAsync(boolean force) {
+        return acquireRun(ProcessingRun.Scope.DEAD_LETTERS, force, true, null)
+                .thenCompose(ProcessingRun::getCompletion)
+                .thenApply(ProcessingRun::getProcessedItems);
+    }
+
+    /**
+     * Same processing as processItemsAsync, but the processed items are not kept: only the counts,
+     * timings and failed IDs are returned, so memory use does not grow with the number of items.
+     * Attaches to any run over the same items already in progress.
+     *
+     * @param incremental if true, only items that are not yet PROCESSED are processed
+     * @param force if true, the request starts a run of its own instead of attaching to the one in progress
+     * @return a CompletableFuture containing the summary of the run
+     */
+    public CompletableFuture<ProcessingSummary> processItemsSummaryAsync(boolean incremental, boolean force) {
+        return acquireRun(scopeOf(incremental), force, false, null)
+                .thenCompose(ProcessingRun::getCompletion)
+                .thenApply(ProcessingRun::summary);
+    }
+
+    /**
+     * Runs the chunked processing described on processItemsAsync for the given run, starting after its
+     * checkpoint. Used by processing jobs, which resume runs and persist their progress, and by background
+     * workers; they call it through exclusively or ifIdle, so that it holds the node's processing slot.
+     *
+     * @param run the run to drive
+     * @return the run's completion future, completed with the run once all its chunks are done
+     */
+    public CompletableFuture<ProcessingRun> process(ProcessingRun run) {
+        track(run);
+        List<CompletableFuture<Void>> lanes = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, processingProperties.getMaxInFlightChunks()); i++) {
+            CompletableFuture<Void> lane = new CompletableFuture<>();
+            runLane(run, lane);
+            lanes.add(lane);
+        }
+
+        CompletableFuture.allOf(lanes.toArray(new CompletableFuture[0])).whenComplete((v, ex) -> {
+            run.markFinished();
+            if (ex != null) {
+                run.getCompletion().completeExceptionally(ex);
+            } else {
+                run.getCompletion().complete(run);
+            }
+            run.getSettled().complete(run);
+        });
+        return run.getCompletion();
+    }
+
+    /**
+     * Registers a run as in progress until it completes, so that it can be found by its ID.
+     */
+    void track(ProcessingRun run) {
+        activeRuns.put(run.getId(), run);
+        run.getCompletion().whenComplete((result, ex) -> activeRuns.remove(run.getId()));
+    }
+
+    /**
+     * Retrieves the runs in progress on this node, of every kind, oldest first.
+     * @return the active runs
+     */
+    public List<ProcessingRun> findActiveRuns() {
+        return activeRuns.values().stream()
+                .sorted(Comparator.comparing(ProcessingRun::getStartedAt))
+                .toList();
+    }
+
+    /**
+     * Cancels a run in progress on this node. Every request attached to the run receives what it has done so far.
+     *
+     * @param runId the ID of the run
+     * @return a future completed with the run once it has wound down, or empty if no run with this ID is in progress
+     */
+    public Optional<CompletableFuture<ProcessingRun>> cancelRun(String runId) {
+        ProcessingRun run = activeRuns.get(runId);
+        if (run == null)
+            return Optional.empty();
+
+        logger.info("Cancelling processing run {}", runId);
+        run.cancel();
+        return Optional.of(run.getCompletion());
+    }
+
+    /**
+     * Starts processing in the background, or attaches to the run over the same items already in progress,
+     * and hands out the run as soon as it has started, so its progress can be observed while it executes.
+     *
+     * @param incremental if true, only items that are not yet PROCESSED are processed
+     * @param force if true, the request starts a run of its own instead of attaching to the one in progress
+     * @return a future completed with the started or joined run, once any other run holding the slot has ended
+     */
+    public CompletableFuture<ProcessingRun> startProcessing(boolean incremental, boolean force) {
+        return acquireRun(scopeOf(incremental), force, false, null);
+    }
+
+    /**
+     * Starts a new run, calling setup on it before the first item is processed, e.g. to register listeners.
+     * The request cannot attach to a run in progress, since that run is past its start; it waits for the
+     * processing slot and starts the next run, which later requests may attach to.
+     *
+     * @param incremental if true, only items that are not yet PROCESSED are processed
+     * @param setup called with the run just before it starts
+     * @return a future completed with the run once it has started
+     */
+    public CompletableFuture<ProcessingRun> startProcessing(boolean incremental, Consumer<ProcessingRun> setup) {
+        return acquireRun(scopeOf(incremental), false, false, setup);
+    }
+
+    /**
+     * Single-flight entry point for on-demand runs. A request attaches to the run holding the processing slot if
+     * that run can serve it: an on-demand run over the same items that collects items when the request needs them,
+     * while the request is neither forced nor has a setup of its own. Otherwise the request waits for the slot and
+     * starts the next run; forcing a run only means not attaching to the one in progress.
+     */
+    private CompletableFuture<ProcessingRun> acquireRun(ProcessingRun.Scope scope, boolean force, boolean collectItems,
+                                                        Consumer<ProcessingRun> setup) {
+        Slot current = slot.get();
+        if (current != null) {
+            ProcessingRun running = current.run();
+            // A run past its deadline is complete while it still holds the slot; it has nothing left to serve
+            if (running != null && !running.getCompletion().isDone() && !force && setup == null
+                    && running.getScope() == scope && (!collectItems || running.isCollectingItems())) {
+                logger.debug("Attaching request to the {} run already in progress", scope);
+                return CompletableFuture.completedFuture(running);
+            }
+        } else {
+            ProcessingRun run = newRun(scope, collectItems);
+            Optional<CompletableFuture<ProcessingRun>> started = tryOccupy(run, () -> {
+                if (setup != null) {
+                    setup.accept(run);
+                }
+                start(run);
+                return run.getSettled();
+            });
+            if (started.isPresent()) {
+                return CompletableFuture.completedFuture(run);
+            }
+        }
+        return whenSlotFree(() -> acquireRun(scope, force, collectItems, setup));
+    }
+
+    /**
+     * Runs processing work in this node's processing slot: right away if the slot is free, otherwise once the
+     * work holding it has ended. Every kind of run other than the on-demand ones of acquireRun goes through here.
+     *
+     * @param work starts the work and returns a future completed when it ends
+     * @return the work's future
+     */
+    public <T> CompletableFuture<T> exclusively(Supplier<CompletableFuture<T>> work) {
+        return tryOccupy(null, work).orElseGet(() -> whenSlotFree(() -> exclusively(work)));
+    }
+
+    /**
+     * Runs processing work in this node's processing slot if it is free, for background work that simply
+     * tries again later instead of queueing behind a run.
+     *
+     * @param work starts the work and returns a future completed when it ends
+     * @return the work's future, or empty if another run holds the slot
+     */
+    public <T> Optional<CompletableFuture<T>> ifIdle(Supplier<CompletableFuture<T>> work) {
+        return tryOccupy(null, work);
+    }
+
+    /**
+     * Takes the processing slot if it is free and starts the work in it; the slot is released when the work ends,
+     * or right away if starting it throws. The returned future completes only after the release, so a caller that
+     * waited for the work finds the slot free again.
+     * @param attachable the run that compatible on-demand requests may attach to, or null
+     */
+    private <T> Optional<CompletableFuture<T>> tryOccupy(ProcessingRun attachable, Supplier<CompletableFuture<T>> work) {
+        Slot mine = new Slot(attachable, new CompletableFuture<>());
+        if (!slot.compareAndSet(null, mine))
+            return Optional.empty();
+
+        CompletableFuture<T> result;
+        try {
+            result = work.get();
+        } catch (RuntimeException e) {
+            release(mine);
+            throw e;
+        }
+        return Optional.of(result.whenComplete((r, ex) -> release(mine)));
+    }
+
+    private void release(Slot held) {
+        slot.compareAndSet(held, null);
+        held.released().complete(null);
+    }
+
+    /**
+     * Calls next once the work holding the processing slot has ended, on the handoff pool so that the next run
+     * is not started on a thread of the one that just ended; right away if the slot is free by now.
+     */
+    private <T> CompletableFuture<T> whenSlotFree(Supplier<CompletableFuture<T>> next) {
+        Slot current = slot.get();
+        if (current == null)
+            return next.get();
+        return current.released().thenComposeAsync(v -> next.get(), handoffExecutor);
+    }
+
+    /**
+     * The work holding the processing slot: the run requests may attach to, if any, and a future completed once
+     * the slot is released.
+     */
+    private record Slot(ProcessingRun run, CompletableFuture<Void> released) {
+    }
+
+    /**
+     * Starts an on-demand run with the job deadline, if one is configured.
+     */
+    private void start(ProcessingRun run) {
+        long deadlineMillis = processingProperties.getJobDeadline().toMillis();
+        if (deadlineMillis > 0) {
+            run.trackItems();
+            CompletableFuture.delayedExecutor(deadlineMillis, TimeUnit.MILLISECONDS, handoffExecutor)
+                    .execute(() -> expire(run));
+        }
+        process(run);
+    }
+
+    /**
+     * Completes a run that is still going at its deadline with what it has done so far, instead of waiting
+     * for work that may never end. Its remaining work is cancelled; the items already in flight finish or time
+     * out after the callers have their answer, and the run keeps the processing slot until they have, see
+     * ProcessingRun.getSettled, so the next run never overlaps with them.
+     */
+    private void expire(ProcessingRun run) {
+        if (run.getCompletion().isDone())
+            return;
+
+        run.deadlineExceeded();
+        logger.warn("Processing run passed its deadline of {}: {} items processed, {} timed out, not started after ID {}",
+                processingProperties.getJobDeadline(), run.getProcessedCount(), run.getTimedOutCount(),
+                run.summary().notStartedAfterId());
+        run.markFinished();
+        run.getCompletion().complete(run);
+    }
+
+    /**
+     * Creates a run without starting it. The number of candidate items is counted up front to allow ETA estimates.
+     */
+    private ProcessingRun newRun(ProcessingRun.Scope scope, boolean collectItems) {
+        ProcessingRun run = new ProcessingRun(scope);
+        run.setCollectItems(collectItems);
+        run.setExpectedCount(countCandidates(run));
+        return run;
+    }
+
+    private long countCandidates(ProcessingRun run) {
+        return switch (run.getScope()) {
+            case ALL -> itemRepository.count();
+            case UNPROCESSED -> itemRepository.countPending();
+            case DEAD_LETTERS -> deadLetterRepository.count();
+            case WORK_QUEUE -> workQueueRepository.count();
+            case FILTERED -> countFiltered(run.getFilter());
+        };
+    }
+
+    /**
+     * Processes only the items matching the filter, e.g. one customer's items or a list of IDs, and returns the
+     * run summary. Every filter pages through the index that serves it: (status, id) for a status, (emailDomain, id)
+     * for an email domain and the primary key for an ID list or range, so the run costs as much as the items it
+     * selects rather than the whole table. Filtered runs are started right away and never shared with other requests.
+     *
+     * @param filter which items to process
+     * @return a CompletableFuture containing the summary of the run
+     * @throws IllegalArgumentException if the filter selects nothing or combines filters that cannot be combined
+     */
+    public CompletableFuture<ProcessingSummary> processFilteredSummaryAsync(ItemFilter filter) {
+        ItemFilter normalized = normalize(filter);
+        // Completed with the run, which at the deadline is before the slot is released
+        CompletableFuture<ProcessingRun> completion = new CompletableFuture<>();
+        exclusively(() -> {
+            ProcessingRun run = new ProcessingRun(normalized);
+            run.setExpectedCount(countCandidates(run));
+            start(run);
+            run.getCompletion().whenComplete((result, ex) -> {
+                if (ex != null) {
+                    completion.completeExceptionally(ex);
+                } else {
+                    completion.complete(result);
+                }
+            });
+            return run.getSettled();
+        }).whenComplete((settled, ex) -> {
+            if (ex != null) {
+                completion.completeExceptionally(ex);
+            }
+        });
+        return completion.thenApply(ProcessingRun::summary);
+    }
+
+    /**
+     * Validates a filter and brings it into the form the queries expect: the IDs sorted and distinct,
+     * the email domain lower-cased and without a leading @.
+     */
+    private static ItemFilter normalize(ItemFilter filter) {
+        long selectors = Stream.of(filter.status(), filter.ids(), filter.emailDomain()).filter(Objects::nonNull).count();
+        if (selectors == 0 && filter.fromId() == null && filter.toId() == null) {
+            throw new IllegalArgumentException("At least one of status, fromId, toId, ids and emailDomain is required");
+        }
+        if (selectors > 1) {
+            throw new IllegalArgumentException("Only one of status, ids and emailDomain can be given");
+        }
+        if (filter.fromId() != null && filter.toId() != null && filter.fromId() > filter.toId()) {
+            throw new IllegalArgumentException("fromId must not be greater than toId");
+        }
+        if (filter.status() != null && filter.status().isBlank()) {
+            throw new IllegalArgumentException("Status must not be blank");
+        }
+
+        List<Long> ids = null;
+        if (filter.ids() != null) {
+            if (filter.ids().isEmpty() || filter.ids().contains(null)) {
+                throw new IllegalArgumentException("IDs must not be empty");
+            }
+            ids = filter.ids().stream().distinct().sorted().toList();
+            if (ids.size() > ItemFilter.MAX_IDS) {
+                throw new IllegalArgumentException("At most " + ItemFilter.MAX_IDS + " IDs can be given");
+            }
+        }
+
+        String emailDomain = null;
+        if (filter.emailDomain() != null) {
+            emailDomain = filter.emailDomain().strip().toLowerCase(Locale.ROOT);
+            if (emailDomain.startsWith("@")) {
+                emailDomain = emailDomain.substring(1);
+            }
+            if (emailDomain.isEmpty()) {
+                throw new IllegalArgumentException("Email domain must not be blank");
+            }
+        }
+        return new ItemFilter(filter.status(), filter.fromId(), filter.toId(), ids, emailDomain);
+    }
+
+    private long countFiltered(ItemFilter filter) {
+        long fromId = filter.fromId() != null ? filter.fromId() : 0L;
+        long toId = filter.toId() != null ? filter.toId() : Long.MAX_VALUE;
+        if (filter.ids() != null) {
+            return itemRepository.countInBetween(filter.ids(), fromId, toId);
+        }
+        if (filter.status() != null) {
+            return itemRepository.countWithStatusBetween(filter.status(), fromId, toId);
+        }
+        if (filter.emailDomain() != null) {
+            return itemRepository.countWithEmailDomainBetween(filter.emailDomain(), fromId, toId);
+        }
+        return itemRepository.countBetween(fromId, toId);
+    }
+
+    /**
+     * The keyset query of a FILTERED run. Its lower ID bound is the run's starting cursor, so only the upper one
+     * is part of the queries.
+     */
+    private List<Long> nextFilteredIds(ItemFilter filter, long afterId, Limit limit) {
+        long toId = filter.toId() != null ? filter.toId() : Long.MAX_VALUE;
+        if (afterId >= toId) {
+            return List.of();
+        }
+        if (filter.ids() != null) {
+            return itemRepository.findIdsInAfter(filter.ids(), afterId, toId, limit);
+        }
+        if (filter.status() != null) {
+            return itemRepository.findIdsAfterWithStatus(afterId, toId, filter.status(), limit);
+        }
+        if (filter.emailDomain() != null) {
+            return itemRepository.findIdsAfterWithEmailDomain(afterId, toId, filter.emailDomain(), limit);
+        }
+        return itemRepository.findIdsBetween(afterId + 1, toId, limit);
+    }
+
+    private static ProcessingRun.Scope scopeOf(boolean incremental) {
+        return incremental ? ProcessingRun.Scope.UNPROCESSED : ProcessingRun.Scope.ALL;
+    }
+
+    /**
+     * Partitioned alternative to processItemsAsync: the ID range [min, max] is split recursively on a
+     * fork/join pool, and each sub-range small enough to be a leaf (at most chunkSize items) is handled by one
+     * worker in one go: one range query for its IDs, one query to load them, the ItemProcessor stages, and
+     * one saveAll. Sub-ranges are split where the items are, not evenly by count up front, so sparse and
+     * dense parts of the ID space both end up as similarly sized leaves, and idle workers steal pending halves
+     * from busy ones. Failed items are retried and dead-lettered as on the chunked path.
+     * Not for use with lease claiming, since leaves do not claim their items.
+     *
+     * @param incremental if true, only items that are not yet PROCESSED are processed
+     * @return a CompletableFuture containing the summary of the run
+     */
+    public CompletableFuture<ProcessingSummary> processItemsPartitionedAsync(boolean incremental) {
+        return exclusively(() -> {
+            ProcessingRun run = new ProcessingRun(incremental);
+            track(run);
+            return CompletableFuture.supplyAsync(() -> {
+                        Long minId = itemRepository.findMinId();
+                        Long maxId = itemRepository.findMaxId();
+                        if (minId != null && maxId != null) {
+                            new PartitionTask(minId, maxId, run).invoke();
+                        }
+                        return run;
+                    }, partitionPool)
+                    .whenComplete((result, ex) -> {
+                        run.markFinished();
+                        if (ex != null) {
+                            run.getCompletion().completeExceptionally(ex);
+                        } else {
+                            run.getCompletion().complete(run);
+                        }
+                    });
+        }).thenApply(ProcessingRun::summary);
+    }
+
+    /**
+     * Processes one ID sub-range: probes it for up to chunkSize + 1 IDs; if they fit in a leaf the range is
+     * processed right here, otherwise it is halved and both halves are forked.
+     */
+    private final class PartitionTask extends RecursiveAction {
+        private final long fromId;
+        private final long toId;
+        private final ProcessingRun run;
+
+        PartitionTask(long fromId, long toId, ProcessingRun run) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.run = run;
+        }
+
+        @Override
+        protected void compute() {
+            if (run.isCancelled())
+                return;
+
+            int leafSize = Math.max(1, processingProperties.getChunkSize());
+            Limit probe = Limit.of(leafSize + 1);
+            List<Long> ids = run.isOnlyUnprocessed()
+                    ? itemRepository.findPendingIdsBetween(fromId, toId, probe)
+                    : itemRepository.findIdsBetween(fromId, toId, probe);
+            if (ids.size() <= leafSize) {
+                processPartition(ids, run);
+                return;
+            }
+
+            long middle = fromId + (toId - fromId) / 2;
+            invokeAll(new PartitionTask(fromId, middle, run), new PartitionTask(middle + 1, toId, run));
+        }
+    }
+
+    /**
+     * Leaf of partitioned processing: loads the items with one query, runs their stages concurrently
+     * and writes them with one saveAll.
+     */
+    private void processPartition(List<Long> ids, ProcessingRun run) {
+        if (ids.isEmpty())
+            return;
+
+        // One rate limit token per item, as on the chunked path
+        allOf(ids.stream().map(id -> rateLimiter.acquire()).toList()).join();
+        if (run.isCancelled())
+            return;
+
+        List<CompletableFuture<Item>> staged = itemRepository.findAllById(ids).stream()
+                .map(item -> transform(item, run))
+                .toList();
+        List<Item> items = staged.stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .toList();
+        if (!run.isCancelled()) {
+            writeBatch(items, run).join();
+        }
+    }
+
+    /**
+     * Set-based alternative to processItemsAsync for when no per-item Java logic is needed:
+     * each keyset page of IDs is moved to PROCESSED with one bulk UPDATE, so the whole job costs
+     * three statements per chunk (page, lock, UPDATE) instead of two round trips per item.
+     * Only items that were actually updated are reported; items already PROCESSED are not rewritten, and they and
+     * items deleted after their page was read are counted as skipped.
+     *
+     * @return a CompletableFuture containing the affected IDs and counts
+     */
+    public CompletableFuture<BulkProcessingResult> processItemsInBulkAsync() {
+        return exclusively(() -> CompletableFuture.supplyAsync(this::processItemsInBulk, executor));
+    }
+
+    private BulkProcessingResult processItemsInBulk() {
+        List<Long> processedIds = new ArrayList<>();
+        int updatedCount = 0;
+        int skippedCount = 0;
+        int statementCount = 0;
+        long lastId = 0L;
+
+        while (true) {
+            List<Long> ids = itemRepository.findIdsAfter(lastId, Limit.of(processingProperties.getChunkSize()));
+            statementCount++;
+            if (ids.isEmpty())
+                break;
+
+            List<Long> updatedIds = itemRepository.transitionStatus(ids, "PROCESSED");
+            statementCount += updatedIds.isEmpty() ? 1 : 2;
+            updatedCount += updatedIds.size();
+            skippedCount += ids.size() - updatedIds.size();
+            processedIds.addAll(updatedIds);
+            lastId = ids.get(ids.size() - 1);
+        }
+
+        logger.info("Bulk processing updated {} items, skipped {}, with {} statements", updatedCount, skippedCount,
+                statementCount);
+        return new BulkProcessingResult(processedIds, updatedCount, skippedCount, statementCount);
+    }
+
+    /**
+     * A lane repeatedly takes the next chunk from the run and processes it, until the table is exhausted.
+     * The next chunk is only scheduled once the previous one completed, which is what bounds the in-flight work.
+     * Chaining through whenComplete (instead of recursive thenCompose) keeps the future chain flat.
+     */
+    private void runLane(ProcessingRun run, CompletableFuture<Void> lane) {
+        CompletableFuture<ProcessingRun.Chunk> next;
+        try {
+            next = CompletableFuture.supplyAsync(
+                    () -> run.nextChunk((afterId, limit) -> nextIds(run, afterId, limit), processingProperties.getChunkSize()),
+                    executor);
+        } catch (RejectedExecutionException e) {
+            // A full queue under the FAIL_FAST or BLOCK policy fails the lane instead of escaping to the caller
+            lane.completeExceptionally(e);
+            return;
+        }
+        next.thenCompose(chunk -> processChunk(chunk, run).thenApply(v -> chunk))
+                .whenComplete((chunk, ex) -> {
+                    if (ex != null) {
+                        lane.completeExceptionally(ex);
+                    } else if (chunk.ids().isEmpty() || run.isCancelled()) {
+                        // A chunk interrupted by cancellation is not marked completed, so the checkpoint stays before it
+                        lane.complete(null);
+                    } else {
+                        run.chunkCompleted(chunk);
+                        runLane(run, lane);
                     }
-        }, executor)).toList();
+                });
+    }
 
-        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> processedItems);
+    /**
+     * The keyset query for a run: the dead-lettered items, the queued items, the items matching a filter, all items,
+     * only unprocessed items, or, with lease claiming enabled, unprocessed items that no other instance currently holds.
+     */
+    List<Long> nextIds(ProcessingRun run, long afterId, Limit limit) {
+        if (run.getScope() == ProcessingRun.Scope.DEAD_LETTERS) {
+            return deadLetterRepository.findItemIdsAfter(afterId, limit);
+        }
+        if (run.getScope() == ProcessingRun.Scope.WORK_QUEUE) {
+            return workQueueRepository.findItemIdsAfter(afterId, limit);
+        }
+        if (run.getScope() == ProcessingRun.Scope.FILTERED) {
+            return nextFilteredIds(run.getFilter(), afterId, limit);
+        }
+        if (processingProperties.getLease().isEnabled()) {
+            return itemRepository.findClaimableIdsAfter(afterId, Instant.now(), limit);
+        }
+        return run.isOnlyUnprocessed()
+                ? itemRepository.findPendingIdsAfter(afterId, limit)
+                : itemRepository.findIdsAfter(afterId, limit);
     }
-}
 
+    /**
+     * Processes one chunk of IDs in parallel. When reprocessing dead letters or draining the work queue, the
+     * entries of the chunk's items are removed once the chunk is done, except those written again during the run:
+     * dead letters of items that failed again, and queue entries of items changed again.
+     * Items that failed while draining the work queue leave the queue, since they are in the dead-letter table now.
+     */
+    private CompletableFuture<Void> processChunk(ProcessingRun.Chunk chunk, ProcessingRun run) {
+        if (chunk.ids().isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> processed = processIds(chunk.ids(), run)
+                .whenComplete((v, ex) -> run.chunkSettled(chunk));
+        Runnable cleanUp = switch (run.getScope()) {
+            case DEAD_LETTERS -> () -> deadLetterRepository.deleteResolved(chunk.ids(), run.getStartedAt());
+            case WORK_QUEUE -> () -> workQueueRepository.deleteDequeued(chunk.ids(), run.getStartedAt());
+            default -> null;
+        };
+        if (cleanUp == null) {
+            return processed;
+        }
+        return processed.thenCompose(v -> run.isCancelled()
+                ? CompletableFuture.<Void>completedFuture(null)
+                : concurrencyLimiter.run(cleanUp, chunk.ids().size(), executor));
+    }
+
+    /**
+     * With lease claiming enabled only the IDs this instance managed to claim are processed;
+     * the rest belong to other instances.
+     * With batch writes enabled the items are only loaded and transformed in parallel, and the whole chunk
+     * is then written with one saveAll in a single transaction.
+     */
+    private CompletableFuture<Void> processIds(List<Long> ids, ProcessingRun run) {
+        if (processingProperties.getLease().isEnabled()) {
+            String leaseToken = processingProperties.getLease().getNodeId() + ":" + UUID.randomUUID();
+            return allOf(claim(ids, leaseToken).stream()
+                    .map(id -> processItem(id, run, leaseToken))
+                    .toList());
+        }
+
+        if (processingProperties.isBatchWrites()) {
+            List<CompletableFuture<Item>> prepared = ids.stream()
+                    .map(id -> withRetries(id, run, () -> prepareItem(id, run))
+                            .exceptionallyCompose(ex -> this.<Item>deadLetter(id, run, ex)))
+                    .toList();
+            return allOf(prepared).thenCompose(v -> writeBatch(prepared.stream()
+                    .map(CompletableFuture::join)
+                    .filter(Objects::nonNull)
+                    .toList(), run));
+        }
+
+        return allOf(ids.stream()
+                .map(id -> processItem(id, run, null))
+                .toList());
+    }
+
+    private static CompletableFuture<Void> allOf(List<? extends CompletableFuture<?>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Claims a batch: one conditional UPDATE takes the lease on every candidate that is still free,
+     * and a lookup by the unique token tells which of them we actually got.
+     */
+    private List<Long> claim(List<Long> candidateIds, String leaseToken) {
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(processingProperties.getLease().getDuration());
+        int claimed = itemRepository.claimLeases(candidateIds, leaseToken, expiresAt, now);
+        if (claimed == 0) {
+            return List.of();
+        }
+        logger.debug("Claimed {} of {} items with lease {}", claimed, candidateIds.size(), leaseToken);
+        return itemRepository.findIdsByLeaseOwner(candidateIds, leaseToken);
+    }
+
+    /**
+     * Loads a single item on the processing pool and passes it through the ItemProcessor stages, without writing it.
+     * The item first takes a token from the rate limiter. Database work is always handed to the pool explicitly,
+     * since stages and the rate limiter may complete on their own threads, and goes through the adaptive
+     * concurrency limiter.
+     * @return a future completed with the transformed item, with null if it was skipped (cancelled, deleted, unchanged),
+     * or exceptionally if loading or a stage failed
+     */
+    private CompletableFuture<Item> prepareItem(Long id, ProcessingRun run) {
+        if (run.isCancelled())
+            return CompletableFuture.completedFuture(null);
+
+        return handOff(rateLimiter.acquire())
+                .thenCompose(v -> {
+                    if (run.isCancelled())
+                        return CompletableFuture.<Item>completedFuture(null);
+
+                    run.itemStarted(id);
+                    return withItemTimeout(concurrencyLimiter.submit(() -> itemRepository.findById(id), executor)
+                            .thenCompose(optionalItem -> optionalItem.isEmpty()
+                                    ? CompletableFuture.<Item>completedFuture(null)
+                                    : applyProcessors(optionalItem.get(), run)));
+                })
+                // Cancellation is only honoured before the write, never between load and save
+                .thenApply(item -> run.isCancelled() ? null : item);
+    }
+
+    /**
+     * Runs the stages of an item that is already loaded, with retries; an item that still fails is dead-lettered.
+     * @return a future completed with the transformed item, or with null if the item failed or was left unchanged
+     */
+    CompletableFuture<Item> transform(Item item, ProcessingRun run) {
+        return withRetries(item.getId(), run, () -> withItemTimeout(applyProcessors(item, run)))
+                .exceptionallyCompose(ex -> deadLetter(item.getId(), run, ex));
+    }
+
+    /**
+     * Passes the item through the ItemProcessor stages. An item the stages left unchanged, e.g. one that was
+     * already PROCESSED, is counted as skipped and comes back as null, so neither a write nor a transaction is
+     * spent on it. With lease claiming every item is written, since the write also releases its lease.
+     */
+    private CompletableFuture<Item> applyProcessors(Item item, ProcessingRun run) {
+        ItemState loaded = ItemState.of(item);
+        CompletableFuture<Item> stage = CompletableFuture.completedFuture(item);
+        for (ItemProcessor processor : itemProcessors) {
+            stage = stage.thenCompose(current -> {
+                long start = System.nanoTime();
+                return handOff(run.track(processor.process(current))).whenComplete((processed, ex) -> {
+                    if (ex == null) {
+                        recordStage(processor, System.nanoTime() - start);
+                    }
+                });
+            });
+        }
+        if (processingProperties.getLease().isEnabled()) {
+            return stage;
+        }
+        return stage.thenApply(processed -> {
+            if (ItemState.of(processed).equals(loaded)) {
+                run.itemSkipped(processed);
+                return null;
+            }
+            return processed;
+        });
+    }
+
+    /**
+     * The persisted fields of an item that processing may change.
+     */
+    private record ItemState(String name, String description, String status, String email) {
+        static ItemState of(Item item) {
+            return new ItemState(item.getName(), item.getDescription(), item.getStatus(), item.getEmail());
+        }
+    }
+
+    /**
+     * Per-item path: prepares the item, then writes it in its own transaction on the processing pool.
+     * A failure at any step retries the item from the load on.
+     */
+    private CompletableFuture<Void> processItem(Long id, ProcessingRun run, String leaseToken) {
+        return withRetries(id, run, () -> prepareItem(id, run).thenCompose(item -> item == null
+                        ? CompletableFuture.<Void>completedFuture(null)
+                        : withItemTimeout(concurrencyLimiter.run(() -> writeItem(item, run, leaseToken), 1, executor))))
+                .exceptionallyCompose(ex -> deadLetter(id, run, ex));
+    }
+
+    private void writeItem(Item item, ProcessingRun run, String leaseToken) {
+        long start = System.nanoTime();
+        if (leaseToken == null) {
+            itemRepository.save(item);
+        } else if (itemRepository.completeLease(item, leaseToken) == 0) {
+            // The lease expired and another instance took the item over; its write wins
+            logger.warn("Lease {} on item {} was lost before completion", leaseToken, item.getId());
+            return;
+        }
+        recordWrite(System.nanoTime() - start, 1);
+        run.itemProcessed(item);
+    }
+
+    /**
+     * Writes a chunk with one saveAll, which runs in a single transaction and is sent as JDBC batches.
+     * If the batch fails, the transaction is rolled back as a whole, so the items are written one by one
+     * (each with its own retries) to keep a single bad row from failing the rest of the chunk.
+     * If it times out instead, the abandoned saveAll may still be running and commit later, so writing the items
+     * again would race it: they are counted as timed out and dead-lettered, and a late commit is not counted.
+     * Like the per-item writes, the batch is admitted through the adaptive concurrency limit and bounded by the
+     * item timeout; StagedItemPipeline's writers go through here as well.
+     */
+    CompletableFuture<Void> writeBatch(List<Item> items, ProcessingRun run) {
+        if (items.isEmpty())
+            return CompletableFuture.completedFuture(null);
+
+        // Set by whichever comes first: the write completing or the timeout abandoning it
+        AtomicBoolean settled = new AtomicBoolean();
+        return withItemTimeout(concurrencyLimiter.run(() -> saveBatch(items, run, settled), items.size(), executor))
+                .exceptionallyCompose(ex -> {
+                    if (isRejection(ex))
+                        return CompletableFuture.failedFuture(ex);
+                    if (isTimeout(ex))
+                        return settled.compareAndSet(false, true)
+                                ? batchTimedOut(items, run, ex)
+                                : CompletableFuture.completedFuture(null);
+                    return writeOneByOne(items, run, ex);
+                });
+    }
+
+    private void saveBatch(List<Item> items, ProcessingRun run, AtomicBoolean settled) {
+        long start = System.nanoTime();
+        itemRepository.saveAll(items);
+        recordWrite(System.nanoTime() - start, items.size());
+        if (settled.compareAndSet(false, true)) {
+            items.forEach(run::itemProcessed);
+        } else {
+            logger.warn("Batch write of {} items committed after it had timed out", items.size());
+        }
+    }
+
+    /**
+     * Terminal outcome of a batch write that timed out: every item is counted as timed out and dead-lettered.
+     */
+    private CompletableFuture<Void> batchTimedOut(List<Item> items, ProcessingRun run, Throwable timeout) {
+        logger.warn("Batch write of {} items timed out, not writing them again while it may still commit",
+                items.size());
+        return allOf(items.stream().map(item -> this.<Void>deadLetter(item.getId(), run, timeout)).toList());
+    }
+
+    /**
+     * Folds the latency of a completed write into the moving average, weighting the latest write by 1/8.
+     */
+    private void recordWrite(long nanos, int items) {
+        fold(writeNanosPerItem, nanos / Math.max(1, items));
+    }
+
+    /**
+     * Folds the time one stage took for one item into that stage's moving average, like recordWrite.
+     */
+    private void recordStage(ItemProcessor processor, long nanos) {
+        fold(stageNanosPerItem.computeIfAbsent(processor, key -> new AtomicLong()), nanos);
+    }
+
+    private static void fold(AtomicLong average, long sample) {
+        average.accumulateAndGet(sample, (current, latest) -> current == 0 ? latest : current + (latest - current) / 8);
+    }
+
+    /**
+     * The time it recently took to write one item, as observed by real runs, which the dry run uses instead of
+     * writing anything itself.
+     * @return the moving average in milliseconds, or empty if nothing was written since startup
+     */
+    public OptionalDouble getObservedWriteMillisPerItem() {
+        long nanos = writeNanosPerItem.get();
+        return nanos == 0 ? OptionalDouble.empty() : OptionalDouble.of(nanos / 1_000_000.0);
+    }
+
+    /**
+     * The time the given stage recently took for one item in real runs, which the dry run uses for stages it may not
+     * call itself, see ItemProcessor.isSampleable.
+     * @param processor one of the ItemProcessor stages
+     * @return the moving average in milliseconds, or empty if the stage completed no item since startup
+     */
+    public OptionalDouble getObservedStageMillisPerItem(ItemProcessor processor) {
+        AtomicLong nanos = stageNanosPerItem.get(processor);
+        long average = nanos == null ? 0L : nanos.get();
+        return average == 0 ? OptionalDouble.empty() : OptionalDouble.of(average / 1_000_000.0);
+    }
+
+    /**
+     * Fallback for a failed batch write: writes the items one by one on the processing pool, each with its
+     * own retries and dead letter.
+     */
+    private CompletableFuture<Void> writeOneByOne(List<Item> items, ProcessingRun run, Throwable batchFailure) {
+        logger.warn("Batch write of {} items failed, writing them one by one", items.size(), batchFailure);
+        return allOf(items.stream()
+                .map(item -> withRetries(item.getId(), run, () -> withItemTimeout(concurrencyLimiter.run(() -> {
+                            long start = System.nanoTime();
+                            itemRepository.save(item);
+                            recordWrite(System.nanoTime() - start, 1);
+                            run.itemProcessed(item);
+                        }, 1, executor)))
+                        .exceptionallyCompose(itemException -> deadLetter(item.getId(), run, itemException)))
+                .toList());
+    }
+
+    /**
+     * Fails the given item operation with a TimeoutException if it does not complete within the item timeout.
+     * The operation itself is not interrupted: a hung query keeps its thread, but the run no longer waits for it.
+     */
+    private <T> CompletableFuture<T> withItemTimeout(CompletableFuture<T> operation) {
+        long timeoutMillis = processingProperties.getItemTimeout().toMillis();
+        return timeoutMillis > 0 ? handOff(operation.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)) : operation;
+    }
+
+    /**
+     * Continues a future that may be completed by a timer thread on the handoff pool instead, see handoffExecutor.
+     */
+    private <T> CompletableFuture<T> handOff(CompletableFuture<T> future) {
+        return future.whenCompleteAsync((result, ex) -> {
+        }, handoffExecutor);
+    }
+
+    /**
+     * Runs an item operation and, if it fails, runs it again after an exponentially growing, jittered delay,
+     * up to the configured number of attempts. The delay is a timer, so no thread waits for it.
+     * Rejections by the processing executor are not retried: they mean the run is being shed, not that the item is bad.
+     * Timeouts are not retried either, so a hung database does not get a growing pile of hung attempts.
+     * @return the operation's future, or one failed with RetriesExhaustedException once all attempts failed
+     */
+    private <T> CompletableFuture<T> withRetries(Long id, ProcessingRun run, Supplier<CompletableFuture<T>> operation) {
+        return withRetries(id, run, operation, 1);
+    }
+
+    private <T> CompletableFuture<T> withRetries(Long id, ProcessingRun run, Supplier<CompletableFuture<T>> operation,
+                                                 int attempt) {
+        return operation.get().exceptionallyCompose(ex -> {
+            if (isRejection(ex) || run.isCancelled())
+                return CompletableFuture.failedFuture(ex);
+            if (isTimeout(ex) || attempt >= processingProperties.getRetry().getMaxAttempts())
+                return CompletableFuture.failedFuture(new RetriesExhaustedException(attempt, unwrap(ex)));
+
+            long delayMillis = backoffMillis(attempt);
+            logger.warn("Attempt {} for item with ID: {} failed, retrying in {} ms: {}", attempt, id, delayMillis,
+                    unwrap(ex).toString());
+            return CompletableFuture.runAsync(() -> {
+                    }, CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS, handoffExecutor))
+                    .thenCompose(v -> withRetries(id, run, operation, attempt + 1));
+        });
+    }
+
+    /**
+     * Delay before the given retry: initialBackoff * multiplier^(attempt - 1), capped at maxBackoff,
+     * of which a random share of up to jitter is taken off.
+     */
+    private long backoffMillis(int attempt) {
+        ProcessingProperties.Retry retry = processingProperties.getRetry();
+        double delay = retry.getInitialBackoff().toMillis() * Math.pow(retry.getMultiplier(), attempt - 1);
+        delay = Math.min(delay, retry.getMaxBackoff().toMillis());
+        double jitter = Math.min(1.0, Math.max(0.0, retry.getJitter()));
+        return Math.round(delay * (1.0 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    /**
+     * Final failure of an item: counts it on the run (as timed out or failed) and records it in the dead-letter table.
+     * Failures caused by cancelling the run are not counted, and rejections are passed on to fail the run.
+     * @return a future completed with null once the dead letter is written
+     */
+    private <T> CompletableFuture<T> deadLetter(Long id, ProcessingRun run, Throwable ex) {
+        if (isRejection(ex))
+            return CompletableFuture.failedFuture(ex);
+        if (run.isCancelled())
+            return CompletableFuture.completedFuture(null);
+
+        Throwable failure = unwrap(ex);
+        int attempts = failure instanceof RetriesExhaustedException exhausted ? exhausted.attempts : 1;
+        Throwable cause = failure instanceof RetriesExhaustedException ? failure.getCause() : failure;
+        if (isTimeout(cause)) {
+            run.itemTimedOut(id);
+            logger.error("Item with ID: {} timed out after {} attempt(s), moving it to the dead-letter table", id, attempts);
+        } else {
+            run.itemFailed(id);
+            logger.error("Error processing item with ID: {} after {} attempt(s), moving it to the dead-letter table",
+                    id, attempts, cause);
+        }
+
+        DeadLetterItem deadLetter = new DeadLetterItem(id, describe(cause), attempts, Instant.now());
+        return concurrencyLimiter.run(() -> deadLetterRepository.save(deadLetter), 1, executor)
+                .handle((v, saveException) -> {
+                    if (saveException != null) {
+                        logger.error("Could not record dead letter for item with ID: {}", id, saveException);
+                    }
+                    return null;
+                });
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        while (ex instanceof CompletionException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return ex;
+    }
+
+    private static boolean isTimeout(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException)
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isRejection(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RejectedExecutionException)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return type and message of the root cause, truncated to fit the dead-letter table
+     */
+    private static String describe(Throwable ex) {
+        Throwable root = ex;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        String description = root.getMessage() == null
+                ? root.getClass().getName()
+                : root.getClass().getName() + ": " + root.getMessage();
+        return description.length() > DeadLetterItem.MAX_CAUSE_LENGTH
+                ? description.substring(0, DeadLetterItem.MAX_CAUSE_LENGTH)
+                : description;
+    }
+
+    /**
+     * Marks an item failure that survived all retries, and carries the number of attempts made.
+     */
+    private static final class RetriesExhaustedException extends RuntimeException {
+        private final int attempts;
+
+        RetriesExhaustedException(int attempts, Throwable cause) {
+            super("Failed after " + attempts + " attempt(s)", cause);
+            this.attempts = attempts;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ProcessingEstimate;
+import com.siemens.internship.repository.ItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dry run: estimates how long a processing run would take and how many statements it would cost, without
+ * processing anything. A sample of the candidate items is taken at random points of the ID range, so it is
+ * not biased towards the oldest items, and each sampled item goes through the read side of a run:
+ * <ul>
+ *   <li>it is loaded on its own, as a run loads it,</li>
+ *   <li>its ItemProcessor stages run on a detached copy, all sampled items at once, as stages of a run overlap.</li>
+ * </ul>
+ * Only stages that declare themselves free of side effects through ItemProcessor.isSampleable are run. For any other
+ * stage the time it took per item in recent runs is added instead, as ItemService observed it; before the stage ran
+ * since startup it adds nothing, and in either case its effect on the changed fraction is not known. The estimate
+ * lists these stages.
+ * Nothing is written: no statement touches, let alone locks, a candidate row. The write latency is the moving average
+ * ItemService observed on the writes of real runs, or, before any run wrote since startup, the read latency as a
+ * proxy; the estimate says which. No run counters, checkpoints or dead letters are touched. The measured latencies are
+ * then scaled to the candidate count with the configured concurrency: database work is spread over the executor's
+ * threads (at most the connections batch work may hold), stages over the items a run keeps in flight, and the
+ * rate limit, if enabled, caps the whole run.
+ */
+@Service
+public class ProcessingEstimator {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessingEstimator.class);
+
+    /** Largest sample a request may ask for. */
+    public static final int MAX_SAMPLE_SIZE = 1000;
+    /** Number of random points of the ID range the sample is taken from. */
+    private static final int PROBES = 10;
+
+    private final ItemRepository itemRepository;
+    private final ItemService itemService;
+    private final List<ItemProcessor> itemProcessors;
+    private final ProcessingProperties processingProperties;
+    private final ExecutorService executor;
+    private final int connectionPoolSize;
+
+    public ProcessingEstimator(ItemRepository itemRepository, ItemService itemService,
+                               List<ItemProcessor> itemProcessors, ProcessingProperties processingProperties,
+                               @Qualifier("processingExecutor") ExecutorService executor,
+                               @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        this.itemRepository = itemRepository;
+        this.itemService = itemService;
+        this.itemProcessors = itemProcessors;
+        this.processingProperties = processingProperties;
+        this.executor = executor;
+        this.connectionPoolSize = connectionPoolSize;
+    }
+
+    /**
+     * Estimates the cost of processing all items, or only those not yet PROCESSED, from a dry run over a sample.
+     *
+     * @param incremental if true, the estimate is for a run over the items that are not yet PROCESSED
+     * @param sampleSize number of items to sample, or null for processing.estimate-sample-size
+     * @return a CompletableFuture containing the estimate
+     * @throws IllegalArgumentException if the sample size is not between 1 and MAX_SAMPLE_SIZE
+     */
+    public CompletableFuture<ProcessingEstimate> estimateAsync(boolean incremental, Integer sampleSize) {
+        int size = sampleSize != null ? sampleSize : processingProperties.getEstimateSampleSize();
+        if (size <= 0 || size > MAX_SAMPLE_SIZE) {
+            throw new IllegalArgumentException("Sample size must be between 1 and " + MAX_SAMPLE_SIZE);
+        }
+        return CompletableFuture.supplyAsync(() -> estimate(incremental, size), executor);
+    }
+
+    private ProcessingEstimate estimate(boolean incremental, int sampleSize) {
+        long candidates = incremental ? itemRepository.countPending() : itemRepository.count();
+
+        List<ItemProcessor> sampleable = itemProcessors.stream().filter(ItemProcessor::isSampleable).toList();
+        List<ItemProcessor> unsampled = itemProcessors.stream().filter(processor -> !processor.isSampleable()).toList();
+
+        List<Item> loaded = new ArrayList<>();
+        long readNanos = 0L;
+        for (Long id : sampleIds(incremental, sampleSize)) {
+            long start = System.nanoTime();
+            itemRepository.findById(id).ifPresent(loaded::add);
+            readNanos += System.nanoTime() - start;
+        }
+
+        List<CompletableFuture<Sample>> transforms = loaded.stream().map(item -> transform(item, sampleable)).toList();
+        List<Sample> samples = transforms.stream().map(CompletableFuture::join).toList();
+        long changed = samples.stream()
+                .filter(sample -> sample.item() != null)
+                .filter(sample -> !sameState(sample.item(), sample.loaded()))
+                .count();
+
+        int sampled = loaded.size();
+        int failed = (int) samples.stream().filter(sample -> sample.item() == null).count();
+        double changedFraction = sampled == 0 ? 0.0 : (double) changed / sampled;
+        double readMillis = sampled == 0 ? 0.0 : millis(readNanos) / sampled;
+        double transformMillis = sampled == 0 ? 0.0
+                : samples.stream().mapToLong(Sample::transformNanos).average().orElse(0.0) / 1_000_000.0;
+        for (ItemProcessor processor : unsampled) {
+            transformMillis += itemService.getObservedStageMillisPerItem(processor).orElse(0.0);
+        }
+        List<String> unsampledStages = unsampled.stream()
+                .map(processor -> ClassUtils.getUserClass(processor).getSimpleName())
+                .toList();
+        OptionalDouble observedWriteMillis = itemService.getObservedWriteMillisPerItem();
+        double writeMillis = observedWriteMillis.orElse(readMillis);
+        String writeLatencySource = observedWriteMillis.isPresent() ? "observed" : "read-proxy";
+
+        ProcessingEstimate estimate = project(candidates, sampled, failed, changedFraction, readMillis, transformMillis,
+                unsampledStages, writeMillis, writeLatencySource);
+        logger.info("Estimated a run over {} items from a sample of {}: {} ms, bound by {}", candidates, sampled,
+                estimate.projectedDurationMillis(), estimate.bottleneck());
+        return estimate;
+    }
+
+    /**
+     * Takes up to sampleSize candidate IDs from PROBES keyset pages that start at random points of the ID range.
+     */
+    private List<Long> sampleIds(boolean incremental, int sampleSize) {
+        Long minId = itemRepository.findMinId();
+        Long maxId = itemRepository.findMaxId();
+        if (minId == null || maxId == null) {
+            return List.of();
+        }
+
+        int probes = Math.min(sampleSize, PROBES);
+        Limit perProbe = Limit.of((sampleSize + probes - 1) / probes);
+        TreeSet<Long> ids = new TreeSet<>();
+        for (int i = 0; i < probes; i++) {
+            long afterId = ThreadLocalRandom.current().nextLong(minId - 1, maxId);
+            ids.addAll(incremental
+                    ? itemRepository.findPendingIdsAfter(afterId, perProbe)
+                    : itemRepository.findIdsAfter(afterId, perProbe));
+        }
+        return ids.stream().limit(sampleSize).toList();
+    }
+
+    /**
+     * An item after its stages, or null if they failed, with the state it was loaded in and how long the stages took.
+     */
+    private record Sample(Item loaded, Item item, long transformNanos) {
+    }
+
+    /**
+     * Runs the given stages on a copy of the item, so the loaded item keeps its state for the comparison.
+     */
+    private CompletableFuture<Sample> transform(Item loaded, List<ItemProcessor> stages) {
+        Item copy = new Item(loaded.getId(), loaded.getName(), loaded.getDescription(), loaded.getStatus(),
+                loaded.getEmail());
+        long start = System.nanoTime();
+        CompletableFuture<Item> stage = CompletableFuture.completedFuture(copy);
+        for (ItemProcessor processor : stages) {
+            stage = stage.thenCompose(processor::process);
+        }
+        long timeoutMillis = processingProperties.getItemTimeout().toMillis();
+        if (timeoutMillis > 0) {
+            stage = stage.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        return stage.handle((item, ex) -> new Sample(loaded, ex == null ? item : null, System.nanoTime() - start));
+    }
+
+    private static boolean sameState(Item a, Item b) {
+        return Objects.equals(a.getName(), b.getName()) && Objects.equals(a.getDescription(), b.getDescription())
+                && Objects.equals(a.getStatus(), b.getStatus()) && Objects.equals(a.getEmail(), b.getEmail());
+    }
+
+    private ProcessingEstimate project(long candidates, int sampled, int failed, double changedFraction,
+                                       double readMillis, double transformMillis, List<String> unsampledStages,
+                                       double writeMillis, String writeLatencySource) {
+        int chunkSize = Math.max(1, processingProperties.getChunkSize());
+        int itemsInFlight = chunkSize * Math.max(1, processingProperties.getMaxInFlightChunks());
+        int databaseConcurrency = Math.max(1, Math.min(executorParallelism(itemsInFlight), batchConnections()));
+        boolean leases = processingProperties.getLease().isEnabled();
+        // With leases every item is written, since the write also releases the lease
+        double writtenFraction = leases ? 1.0 : changedFraction;
+
+        double databaseMillis = candidates * (readMillis + writtenFraction * writeMillis) / databaseConcurrency;
+        double stageMillis = candidates * transformMillis / itemsInFlight;
+        double rateLimitMillis = processingProperties.getRateLimit().isEnabled()
+                ? candidates * 1000.0 / processingProperties.getRateLimit().getItemsPerSecond()
+                : 0.0;
+        String bottleneck = databaseMillis >= stageMillis ? "database" : "transform";
+        double durationMillis = Math.max(databaseMillis, stageMillis);
+        if (rateLimitMillis > durationMillis) {
+            bottleneck = "rate-limit";
+            durationMillis = rateLimitMillis;
+        }
+
+        long chunks = (candidates + chunkSize - 1) / chunkSize;
+        long rowWrites = Math.round(candidates * writtenFraction);
+        // One keyset page per chunk plus the final empty one, and one load per item
+        long queries = chunks + 1 + candidates + (leases ? chunks : 0);
+        long transactions;
+        if (leases) {
+            // One claim per chunk, one conditional update per item
+            transactions = chunks + rowWrites;
+        } else if (processingProperties.isBatchWrites()) {
+            transactions = Math.min(chunks, rowWrites);
+        } else {
+            transactions = rowWrites;
+        }
+
+        return new ProcessingEstimate(candidates, sampled, failed, changedFraction, readMillis, transformMillis,
+                unsampledStages, writeMillis, writeLatencySource, databaseConcurrency, itemsInFlight,
+                Math.round(durationMillis), bottleneck, queries, rowWrites, transactions);
+    }
+
+    /**
+     * Threads of the processing executor that can load or write at the same time.
+     */
+    private int executorParallelism(int itemsInFlight) {
+        return switch (processingProperties.getExecutorStrategy()) {
+            case FIXED -> processingProperties.getPoolSize();
+            case VIRTUAL -> itemsInFlight;
+            case BOUNDED_VIRTUAL -> processingProperties.getMaxConcurrency() > 0
+                    ? processingProperties.getMaxConcurrency()
+                    : connectionPoolSize;
+        };
+    }
+
+    /**
+     * Pooled connections batch work may hold, see ConnectionBulkhead.
+     */
+    private int batchConnections() {
+        ProcessingProperties.Bulkhead bulkhead = processingProperties.getBulkhead();
+        return bulkhead.isEnabled()
+                ? Math.max(1, connectionPoolSize - Math.max(0, bulkhead.getReservedConnections()))
+                : connectionPoolSize;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
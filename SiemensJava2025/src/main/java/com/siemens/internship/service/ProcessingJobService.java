@@ -0,0 +1,232 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.ProcessingJob;
+import com.siemens.internship.repository.ProcessingJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts, tracks and resumes persistent processing jobs.
+ * Each job drives a ProcessingRun through ItemService and writes its checkpoint and counters
+ * to the PROCESSING_JOB table after every completed chunk.
+ * A job is owned by the node running it under a lease of processing.job-lease, which a heartbeat renews every
+ * third of the lease. Nodes only take over RUNNING jobs whose lease has expired, with a conditional update that
+ * a single node wins, and every write of a job's progress or outcome is conditional on still owning it, so a node
+ * that lost a job stops it instead of overwriting the new owner's checkpoint.
+ */
+@Service
+public class ProcessingJobService {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessingJobService.class);
+
+    private final ProcessingJobRepository jobRepository;
+    private final ItemService itemService;
+    private final String nodeId;
+    private final Duration jobLease;
+    /** Jobs currently running on this node. */
+    private final Map<Long, ActiveJob> activeJobs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "processing-job-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProcessingJobService(ProcessingJobRepository jobRepository, ItemService itemService,
+                                ProcessingProperties processingProperties) {
+        this.jobRepository = jobRepository;
+        this.itemService = itemService;
+        this.nodeId = processingProperties.getLease().getNodeId();
+        this.jobLease = processingProperties.getJobLease();
+    }
+
+    /**
+     * Creates a new job over the item table and starts it in the background.
+     * @param incremental if true, only items that are not yet PROCESSED are processed
+     * @return the created job, in state RUNNING
+     */
+    public ProcessingJob start(boolean incremental) {
+        ProcessingJob job = new ProcessingJob();
+        job.setState(ProcessingJob.State.RUNNING);
+        job.setIncremental(incremental);
+        job.setCreatedAt(Instant.now());
+        job.setUpdatedAt(job.getCreatedAt());
+        job.setOwnerNode(nodeId);
+        job.setLeaseExpiresAt(job.getCreatedAt().plus(jobLease));
+        job = jobRepository.save(job);
+
+        run(job);
+        return job;
+    }
+
+    /**
+     * Retrieves all jobs.
+     * @return a list of all jobs
+     */
+    public List<ProcessingJob> findAll() {
+        return jobRepository.findAll();
+    }
+
+    /**
+     * Finds a job by its ID.
+     * @param id the ID of the job
+     * @return an Optional containing the job if found, otherwise empty
+     */
+    public Optional<ProcessingJob> findById(Long id) {
+        return jobRepository.findById(id);
+    }
+
+    /**
+     * Cancels a job running on this node: no further chunks are scheduled, items waiting in their
+     * simulated work are interrupted and items not yet started are skipped.
+     * @param id the ID of the job
+     * @return an Optional with a future completed with the job once it has wound down, or empty if the job is not running here
+     */
+    public Optional<CompletableFuture<ProcessingJob>> cancel(Long id) {
+        ActiveJob active = activeJobs.get(id);
+        if (active == null) {
+            return Optional.empty();
+        }
+        logger.info("Cancelling processing job {}", id);
+        active.run().cancel();
+        return Optional.of(active.completion());
+    }
+
+    /**
+     * Resumes, from their last checkpoint, the jobs still marked RUNNING that were interrupted by a shutdown or
+     * crash: those of this node and those whose owner's lease has expired. Jobs of other nodes with a live lease
+     * are left alone. Then starts the heartbeat.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        takeOverOrphanedJobs(nodeId);
+        long periodMillis = Math.max(1L, jobLease.toMillis() / 3);
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Renews the leases of the jobs running on this node and takes over RUNNING jobs whose lease has expired.
+     */
+    void heartbeat() {
+        try {
+            Instant expiresAt = Instant.now().plus(jobLease);
+            activeJobs.forEach((jobId, active) -> {
+                if (jobRepository.renewLease(jobId, nodeId, expiresAt) == 0) {
+                    lostOwnership(jobId, active.run());
+                }
+            });
+            takeOverOrphanedJobs(null);
+        } catch (RuntimeException e) {
+            // Thrown out of a scheduled task, it would cancel all further heartbeats
+            logger.error("Processing job heartbeat failed", e);
+        }
+    }
+
+    /**
+     * Takes over and runs the orphaned jobs, see ProcessingJobRepository.findOrphaned.
+     * @param ownNode this node's ID to also take back its own jobs, or null
+     */
+    private void takeOverOrphanedJobs(String ownNode) {
+        Instant now = Instant.now();
+        for (ProcessingJob job : jobRepository.findOrphaned(ownNode, now)) {
+            if (activeJobs.containsKey(job.getId()) || jobRepository.takeOver(job.getId(), nodeId, now.plus(jobLease),
+                    ownNode, now) == 0)
+                continue;
+
+            // Reloaded, since the previous owner may have written progress after the job was found
+            ProcessingJob owned = jobRepository.findById(job.getId()).orElseThrow();
+            logger.info("Resuming processing job {} of node {} after checkpoint {}", owned.getId(), job.getOwnerNode(),
+                    owned.getCheckpoint());
+            run(owned);
+        }
+    }
+
+    /**
+     * Stops a job another node has taken over, e.g. after this node missed its heartbeats. Its progress is
+     * the new owner's to write from now on.
+     */
+    private void lostOwnership(Long jobId, ProcessingRun run) {
+        if (run.isCancelled())
+            return;
+
+        logger.warn("Processing job {} is no longer owned by node {}, stopping it here", jobId, nodeId);
+        run.cancel();
+    }
+
+    private void run(ProcessingJob job) {
+        Long jobId = job.getId();
+        ProcessingRun run = new ProcessingRun(job.isIncremental(), job.getCheckpoint(),
+                job.getProcessedCount(), job.getSkippedCount(), job.getFailedCount());
+        run.addChunkListener(progress -> {
+            if (!saveProgress(jobId, progress)) {
+                lostOwnership(jobId, progress);
+            }
+        });
+
+        // Registered before the run starts, so a run that finishes immediately cannot leave a stale entry behind
+        CompletableFuture<ProcessingJob> completion = new CompletableFuture<>();
+        activeJobs.put(jobId, new ActiveJob(run, completion));
+
+        // Waits for the node's processing slot, so a job never runs alongside another run
+        itemService.exclusively(() -> itemService.process(run)).whenComplete((result, ex) -> {
+            try {
+                completion.complete(finish(jobId, run, ex));
+            } catch (RuntimeException e) {
+                completion.completeExceptionally(e);
+            } finally {
+                activeJobs.remove(jobId);
+            }
+        });
+    }
+
+    private ProcessingJob finish(Long jobId, ProcessingRun run, Throwable ex) {
+        ProcessingJob.State state;
+        if (run.isCancelled()) {
+            state = ProcessingJob.State.CANCELLED;
+        } else if (ex == null) {
+            state = ProcessingJob.State.COMPLETED;
+        } else {
+            state = ProcessingJob.State.FAILED;
+            logger.error("Processing job {} failed", jobId, ex);
+        }
+
+        if (!saveProgress(jobId, run) || jobRepository.finish(jobId, nodeId, state, Instant.now()) == 0) {
+            logger.warn("Processing job {} is owned by another node, leaving its outcome to that node", jobId);
+        }
+        return jobRepository.findById(jobId).orElseThrow();
+    }
+
+    /**
+     * Lanes complete chunks concurrently; holding the run's lock keeps an older checkpoint
+     * from being written after a newer one.
+     * @return false if the job is no longer owned by this node, in which case nothing was written
+     */
+    private boolean saveProgress(Long jobId, ProcessingRun run) {
+        synchronized (run) {
+            return jobRepository.updateProgress(jobId, nodeId, run.getCheckpoint(), run.getProcessedCount(),
+                    run.getSkippedCount(), run.getFailedCount(), Instant.now()) > 0;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+    }
+
+    private record ActiveJob(ProcessingRun run, CompletableFuture<ProcessingJob> completion) {
+    }
+}
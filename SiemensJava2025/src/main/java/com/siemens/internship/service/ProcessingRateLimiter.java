@@ -0,0 +1,175 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.RateLimitSettings;
+import com.siemens.internship.model.RateLimitStatus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket that limits how fast items enter the processing pipeline: tokens are added at itemsPerSecond
+ * up to burst, and every item takes one before it is loaded.
+ * Waiting is non-blocking: items without a token are queued as futures and admitted in order by a timer task
+ * scheduled for the moment the next token becomes available.
+ * The queue length is published as the processing.ratelimit.waiting gauge.
+ */
+@Component
+public class ProcessingRateLimiter implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessingRateLimiter.class);
+
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "processing-rate-limiter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private boolean enabled;
+    private double itemsPerSecond;
+    private int burst;
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    private boolean drainScheduled;
+
+    public ProcessingRateLimiter(ProcessingProperties processingProperties) {
+        ProcessingProperties.RateLimit settings = processingProperties.getRateLimit();
+        this.enabled = settings.isEnabled();
+        this.itemsPerSecond = Math.max(Double.MIN_VALUE, settings.getItemsPerSecond());
+        this.burst = Math.max(1, settings.getBurst());
+        this.tokens = burst;
+    }
+
+    /**
+     * Takes a token for one item. When the limit is disabled the future is already complete.
+     * @return a future completed once the item may start
+     */
+    public synchronized CompletableFuture<Void> acquire() {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        refill();
+        if (waiters.isEmpty() && tokens >= 1.0) {
+            tokens -= 1.0;
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        scheduleDrain();
+        return waiter;
+    }
+
+    /**
+     * Applies runtime changes. Disabling the limit admits every waiting item right away.
+     * @param settings the settings to change, null fields are left as they are
+     * @return the limiter status after the change
+     * @throws IllegalArgumentException if the rate or burst is not positive; nothing is changed then
+     */
+    public RateLimitStatus update(RateLimitSettings settings) {
+        if (settings.itemsPerSecond() != null && !(settings.itemsPerSecond() > 0)) {
+            throw new IllegalArgumentException("Items per second must be positive");
+        }
+        if (settings.burst() != null && settings.burst() <= 0) {
+            throw new IllegalArgumentException("Burst must be positive");
+        }
+
+        List<CompletableFuture<Void>> admitted = new ArrayList<>();
+        synchronized (this) {
+            // Tokens earned so far are accounted at the old rate
+            refill();
+            if (settings.itemsPerSecond() != null) {
+                itemsPerSecond = settings.itemsPerSecond();
+            }
+            if (settings.burst() != null) {
+                burst = settings.burst();
+                tokens = Math.min(tokens, burst);
+            }
+            if (settings.enabled() != null) {
+                enabled = settings.enabled();
+            }
+            if (!enabled) {
+                admitted.addAll(waiters);
+                waiters.clear();
+            }
+            logger.info("Processing rate limit {}: {} items/s, burst {}", enabled ? "enabled" : "disabled",
+                    itemsPerSecond, burst);
+        }
+        admitted.forEach(waiter -> waiter.complete(null));
+        return status();
+    }
+
+    /**
+     * @return the current settings, the tokens in the bucket and the number of waiting items
+     */
+    public synchronized RateLimitStatus status() {
+        if (enabled) {
+            refill();
+        }
+        return new RateLimitStatus(enabled, itemsPerSecond, burst, tokens, waiters.size());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("processing.ratelimit.waiting", this, limiter -> limiter.status().waiting())
+                .description("Items waiting for a processing rate limit token")
+                .register(registry);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) / 1e9 * itemsPerSecond);
+        refilledAt = now;
+    }
+
+    /**
+     * Schedules the next admission for when a token will be available. Must be called holding the lock.
+     */
+    private void scheduleDrain() {
+        if (drainScheduled) {
+            return;
+        }
+        long delayNanos = (long) Math.ceil(Math.max(0.0, 1.0 - tokens) / itemsPerSecond * 1e9);
+        try {
+            timer.schedule(this::drain, delayNanos, TimeUnit.NANOSECONDS);
+            drainScheduled = true;
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    private void drain() {
+        List<CompletableFuture<Void>> admitted = new ArrayList<>();
+        synchronized (this) {
+            drainScheduled = false;
+            refill();
+            while (!waiters.isEmpty() && tokens >= 1.0) {
+                tokens -= 1.0;
+                admitted.add(waiters.poll());
+            }
+            if (!waiters.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+        // Completed outside the lock: the waiters' continuations submit their loads right away
+        admitted.forEach(waiter -> waiter.complete(null));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,533 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ItemFilter;
+import com.siemens.internship.model.ProcessingProgress;
+import com.siemens.internship.model.ProcessingSummary;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runtime state of one processing run: the keyset cursor, the counters and the checkpoint.
+ * Lanes take chunks from the run concurrently and may finish them out of order, so the checkpoint is
+ * the highest ID below which every chunk has completed; items up to the checkpoint never need to be
+ * processed again.
+ */
+public class ProcessingRun {
+    /** Identifies the run to clients, e.g. to cancel it; runs are not persisted, so it only lives as long as the run. */
+    private final String id = UUID.randomUUID().toString();
+    private final long startAfterId;
+    private final Scope scope;
+    private final ItemFilter filter;
+    private final Instant startedAt = Instant.now();
+    private final long initialHandledCount;
+    private final AtomicLong processedCount;
+    private final AtomicLong skippedCount;
+    private final AtomicLong failedCount;
+    private volatile long expectedCount = -1L;
+    private final CompletableFuture<ProcessingRun> completion = new CompletableFuture<>();
+    private final CompletableFuture<ProcessingRun> settled = new CompletableFuture<>();
+    private volatile Instant finishedAt;
+    /** Only filled when collectItems is set; appending to it is O(1), unlike a copy-on-write list. */
+    private final Queue<Item> processedItems = new ConcurrentLinkedQueue<>();
+    private volatile boolean collectItems;
+    private final Queue<Long> failedIds = new ConcurrentLinkedQueue<>();
+    private final AtomicLong timedOutCount = new AtomicLong();
+    private final Queue<Long> timedOutIds = new ConcurrentLinkedQueue<>();
+    private final List<Consumer<ProcessingRun>> chunkListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<Item>> itemListeners = new CopyOnWriteArrayList<>();
+
+    private final Object cursorLock = new Object();
+    /** In-flight chunks, keyed by the ID after which they start and mapped to their last ID. */
+    private final NavigableMap<Long, Long> pendingChunks = new TreeMap<>();
+    private long lastIssuedId;
+    private long issuedCount;
+    private volatile long itemLimit = Long.MAX_VALUE;
+
+    private volatile boolean cancelled;
+    /** Processor stages currently pending, cancelled together with the run. */
+    private final Set<CompletableFuture<?>> pendingStages = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Only with a deadline: IDs handed out but not started yet, and IDs started but not finished yet.
+     * Both only cover the chunks in flight, so they stay as small as the in-flight work.
+     */
+    private volatile boolean trackingItems;
+    private final Set<Long> notStartedIds = ConcurrentHashMap.newKeySet();
+    private final Set<Long> inFlightIds = ConcurrentHashMap.newKeySet();
+    private boolean exhausted;
+    private volatile DeadlineOutcome deadlineOutcome;
+
+    /**
+     * Creates a run over the whole table.
+     */
+    public ProcessingRun() {
+        this(Scope.ALL);
+    }
+
+    /**
+     * Creates a run from the start of the table.
+     * @param onlyUnprocessed whether to skip items that are already PROCESSED
+     */
+    public ProcessingRun(boolean onlyUnprocessed) {
+        this(onlyUnprocessed, 0L, 0L, 0L);
+    }
+
+    /**
+     * Creates a run from the start of the given scope.
+     * @param scope which items the run selects
+     */
+    public ProcessingRun(Scope scope) {
+        this(scope, null, 0L, 0L, 0L, 0L);
+    }
+
+    /**
+     * Creates a run over the items matching a filter, starting at its lower ID bound.
+     * @param filter which items the run selects
+     */
+    public ProcessingRun(ItemFilter filter) {
+        this(Scope.FILTERED, filter, filter.fromId() != null ? Math.max(0L, filter.fromId() - 1) : 0L, 0L, 0L, 0L);
+    }
+
+    /**
+     * Creates a run that resumes after a checkpoint.
+     * @param onlyUnprocessed whether to skip items that are already PROCESSED
+     * @param startAfterId only IDs strictly greater than this are processed
+     * @param processedCount items already processed by earlier attempts
+     * @param failedCount items that already failed in earlier attempts
+     */
+    public ProcessingRun(boolean onlyUnprocessed, long startAfterId, long processedCount, long failedCount) {
+        this(onlyUnprocessed, startAfterId, processedCount, 0L, failedCount);
+    }
+
+    /**
+     * Creates a run that resumes after a checkpoint.
+     * @param onlyUnprocessed whether to skip items that are already PROCESSED
+     * @param startAfterId only IDs strictly greater than this are processed
+     * @param processedCount items already processed by earlier attempts
+     * @param skippedCount items earlier attempts left unwritten because processing did not change them
+     * @param failedCount items that already failed in earlier attempts
+     */
+    public ProcessingRun(boolean onlyUnprocessed, long startAfterId, long processedCount, long skippedCount,
+                         long failedCount) {
+        this(onlyUnprocessed ? Scope.UNPROCESSED : Scope.ALL, null, startAfterId, processedCount, skippedCount,
+                failedCount);
+    }
+
+    private ProcessingRun(Scope scope, ItemFilter filter, long startAfterId, long processedCount, long skippedCount,
+                          long failedCount) {
+        this.scope = scope;
+        this.filter = filter;
+        this.startAfterId = startAfterId;
+        this.lastIssuedId = startAfterId;
+        this.initialHandledCount = processedCount + skippedCount + failedCount;
+        this.processedCount = new AtomicLong(processedCount);
+        this.skippedCount = new AtomicLong(skippedCount);
+        this.failedCount = new AtomicLong(failedCount);
+    }
+
+    /**
+     * Registers a callback invoked after every completed chunk, e.g. to persist the checkpoint.
+     * @param listener the callback
+     */
+    public void addChunkListener(Consumer<ProcessingRun> listener) {
+        chunkListeners.add(listener);
+    }
+
+    /**
+     * Registers a callback invoked for every processed item, on the thread that wrote it.
+     * Must be registered before the run starts to see every item.
+     * @param listener the callback
+     */
+    public void addItemListener(Consumer<Item> listener) {
+        itemListeners.add(listener);
+    }
+
+    /**
+     * Requests cooperative cancellation: no further chunks are handed out, items not yet started are
+     * skipped and pending processor stages are cancelled. Items already writing finish normally.
+     */
+    public void cancel() {
+        cancelled = true;
+        pendingStages.forEach(stage -> stage.cancel(false));
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Registers a processor stage so that cancel() can abort it.
+     * @return the stage as a CompletableFuture
+     */
+    <T> CompletableFuture<T> track(CompletionStage<T> stage) {
+        CompletableFuture<T> future = stage.toCompletableFuture();
+        pendingStages.add(future);
+        future.whenComplete((result, ex) -> pendingStages.remove(future));
+        // cancel() may have run between the caller's last check and the registration above
+        if (cancelled) {
+            future.cancel(false);
+        }
+        return future;
+    }
+
+    /**
+     * Fetches the next keyset page and marks it as in flight. Calls are serialized so every page is handed out once.
+     * Once the run is cancelled or its item limit is reached an empty page is returned, which ends the lanes.
+     */
+    Chunk nextChunk(PageQuery pageQuery, int chunkSize) {
+        synchronized (cursorLock) {
+            long remaining = itemLimit - issuedCount;
+            if (cancelled || remaining <= 0) {
+                return new Chunk(lastIssuedId, List.of());
+            }
+            long afterId;
+            synchronized (this) {
+                afterId = lastIssuedId;
+            }
+            List<Long> ids = pageQuery.nextIds(afterId, Limit.of((int) Math.min(chunkSize, remaining)));
+            issuedCount += ids.size();
+            if (ids.isEmpty()) {
+                exhausted = true;
+            } else if (trackingItems) {
+                notStartedIds.addAll(ids);
+            }
+            if (!ids.isEmpty()) {
+                synchronized (this) {
+                    lastIssuedId = ids.get(ids.size() - 1);
+                    pendingChunks.put(afterId, lastIssuedId);
+                }
+            }
+            return new Chunk(afterId, ids);
+        }
+    }
+
+    /**
+     * Called when the first attempt of an item begins its work, i.e. once it has passed the rate limiter.
+     */
+    void itemStarted(Long id) {
+        if (trackingItems && notStartedIds.remove(id)) {
+            inFlightIds.add(id);
+        }
+    }
+
+    /**
+     * Called when the work on a chunk has ended, whatever happened to its items.
+     */
+    void chunkSettled(Chunk chunk) {
+        if (trackingItems) {
+            chunk.ids().forEach(notStartedIds::remove);
+            chunk.ids().forEach(inFlightIds::remove);
+        }
+    }
+
+    void chunkCompleted(Chunk chunk) {
+        synchronized (this) {
+            pendingChunks.remove(chunk.afterId());
+        }
+        chunkListeners.forEach(listener -> listener.accept(this));
+    }
+
+    void itemProcessed(Item item) {
+        inFlightIds.remove(item.getId());
+        processedCount.incrementAndGet();
+        if (collectItems) {
+            processedItems.add(item);
+        }
+        itemListeners.forEach(listener -> listener.accept(item));
+    }
+
+    /**
+     * Called for an item that processing left unchanged, so that it was not written.
+     */
+    void itemSkipped(Item item) {
+        inFlightIds.remove(item.getId());
+        skippedCount.incrementAndGet();
+    }
+
+    void itemFailed(Long id) {
+        inFlightIds.remove(id);
+        failedCount.incrementAndGet();
+        failedIds.add(id);
+    }
+
+    void itemTimedOut(Long id) {
+        inFlightIds.remove(id);
+        timedOutCount.incrementAndGet();
+        timedOutIds.add(id);
+    }
+
+    /**
+     * Records the time the run finished; later calls keep the first time, since a run that hit its deadline
+     * is finished while some of its work may still end afterwards.
+     */
+    synchronized void markFinished() {
+        if (finishedAt == null) {
+            finishedAt = Instant.now();
+        }
+    }
+
+    /**
+     * Makes the run keep track of which items are not started and which are in flight, so that
+     * deadlineExceeded can report them. Must be called before the run starts.
+     */
+    void trackItems() {
+        trackingItems = true;
+    }
+
+    /**
+     * Ends the run at its deadline: the run is cancelled, the items in flight count as timed out and the
+     * items not started so far are recorded.
+     */
+    void deadlineExceeded() {
+        List<Long> notStarted;
+        Long notStartedAfterId;
+        synchronized (cursorLock) {
+            notStarted = new ArrayList<>(notStartedIds);
+            notStartedAfterId = exhausted ? null : lastIssuedId;
+        }
+        notStarted.sort(null);
+        for (Long id : inFlightIds) {
+            itemTimedOut(id);
+        }
+        deadlineOutcome = new DeadlineOutcome(notStarted, notStartedAfterId);
+        // Last, since cancelling may complete the run right away, on this thread
+        cancel();
+    }
+
+    public boolean isDeadlineExceeded() {
+        return deadlineOutcome != null;
+    }
+
+    /**
+     * @return how many IDs the run has handed out to its lanes so far
+     */
+    long getIssuedCount() {
+        synchronized (cursorLock) {
+            return issuedCount;
+        }
+    }
+
+    /**
+     * @return the highest ID such that every item up to it has been handled
+     */
+    public synchronized long getCheckpoint() {
+        return pendingChunks.isEmpty() ? lastIssuedId : pendingChunks.firstKey();
+    }
+
+    /**
+     * Summarizes the run for progress reporting. Throughput and ETA only consider items handled by this
+     * run, not those carried over from earlier attempts of a resumed job.
+     * @return the current progress of the run
+     */
+    public ProcessingProgress progress() {
+        long processed = processedCount.get();
+        long skipped = skippedCount.get();
+        long failed = failedCount.get();
+        long handledByThisRun = processed + skipped + failed - initialHandledCount;
+        double elapsedSeconds = Duration.between(startedAt, Instant.now()).toMillis() / 1000.0;
+        double itemsPerSecond = elapsedSeconds > 0 ? handledByThisRun / elapsedSeconds : 0.0;
+
+        Long etaSeconds = null;
+        boolean done = completion.isDone();
+        if (done) {
+            etaSeconds = 0L;
+        } else if (expectedCount >= 0 && itemsPerSecond > 0) {
+            long remaining = Math.max(0L, expectedCount - handledByThisRun);
+            etaSeconds = Math.round(remaining / itemsPerSecond);
+        }
+        return new ProcessingProgress(id, processed, skipped, failed, expectedCount, itemsPerSecond, etaSeconds, getCheckpoint(), done);
+    }
+
+    /**
+     * Summarizes a run without its items, for clients that only need the outcome.
+     * @return counts, timings and the IDs of the failed items
+     */
+    public ProcessingSummary summary() {
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        long durationMillis = Duration.between(startedAt, end).toMillis();
+        long handledByThisRun = processedCount.get() + skippedCount.get() + failedCount.get() - initialHandledCount;
+        double itemsPerSecond = durationMillis > 0 ? handledByThisRun * 1000.0 / durationMillis : 0.0;
+        DeadlineOutcome deadline = deadlineOutcome;
+        return new ProcessingSummary(id, processedCount.get(), skippedCount.get(), failedCount.get(), getFailedIds(), timedOutCount.get(),
+                getTimedOutIds(), deadline != null, deadline != null ? deadline.notStartedIds() : List.of(),
+                deadline != null ? deadline.notStartedAfterId() : null, startedAt, finishedAt, durationMillis,
+                itemsPerSecond);
+    }
+
+    /**
+     * @param expectedCount how many items this run is expected to handle, used to estimate the remaining time
+     */
+    public void setExpectedCount(long expectedCount) {
+        this.expectedCount = expectedCount;
+    }
+
+    /**
+     * @return a future completed with this run once all its chunks are done
+     */
+    public CompletableFuture<ProcessingRun> getCompletion() {
+        return completion;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return a future completed with this run once none of its work is in flight any more; past the deadline
+     * this is later than getCompletion, since items in flight at the deadline still finish or time out
+     */
+    public CompletableFuture<ProcessingRun> getSettled() {
+        return settled;
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * @return the filter of a FILTERED run, otherwise null
+     */
+    public ItemFilter getFilter() {
+        return filter;
+    }
+
+    public boolean isOnlyUnprocessed() {
+        return scope == Scope.UNPROCESSED;
+    }
+
+    public long getStartAfterId() {
+        return startAfterId;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @param itemLimit the maximum number of IDs the run hands out, after which it ends as if the table were
+     * exhausted; set it before the run starts
+     */
+    public void setItemLimit(long itemLimit) {
+        this.itemLimit = itemLimit;
+    }
+
+    /**
+     * @param collectItems whether to keep every processed item in memory for getProcessedItems.
+     * Off by default, since a large run would hold the whole table; set it before the run starts.
+     */
+    public void setCollectItems(boolean collectItems) {
+        this.collectItems = collectItems;
+    }
+
+    public boolean isCollectingItems() {
+        return collectItems;
+    }
+
+    /**
+     * @return the processed items, if the run collects them, otherwise an empty list
+     */
+    public List<Item> getProcessedItems() {
+        return new ArrayList<>(processedItems);
+    }
+
+    /**
+     * @return the IDs of the items that failed during this run, in no particular order
+     */
+    public List<Long> getFailedIds() {
+        return new ArrayList<>(failedIds);
+    }
+
+    /**
+     * @return the IDs of the items that timed out during this run, in no particular order
+     */
+    public List<Long> getTimedOutIds() {
+        return new ArrayList<>(timedOutIds);
+    }
+
+    public long getTimedOutCount() {
+        return timedOutCount.get();
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * What was left undone when the deadline passed.
+     * @param notStartedIds handed-out IDs whose processing had not started
+     * @param notStartedAfterId none of the IDs after this one were handed out; null if the whole scope was
+     */
+    private record DeadlineOutcome(List<Long> notStartedIds, Long notStartedAfterId) {
+    }
+
+    /**
+     * Which items a run selects.
+     */
+    public enum Scope {
+        /**
+         * Every item in the table.
+         */
+        ALL,
+        /**
+         * Only items whose status is not yet PROCESSED.
+         */
+        UNPROCESSED,
+        /**
+         * Only items in the dead-letter table.
+         */
+        DEAD_LETTERS,
+        /**
+         * Only items in the work queue, i.e. created or changed since they were last processed.
+         */
+        WORK_QUEUE,
+        /**
+         * Only items matching the run's filter.
+         */
+        FILTERED
+    }
+
+    /**
+     * One keyset page of IDs.
+     * @param afterId the cursor position the page was read from
+     * @param ids the IDs of the page, empty when the table is exhausted
+     */
+    record Chunk(long afterId, List<Long> ids) {
+    }
+
+    /**
+     * The keyset query a run pages through.
+     */
+    @FunctionalInterface
+    interface PageQuery {
+        List<Long> nextIds(long afterId, Limit limit);
+    }
+}
@@ -0,0 +1,123 @@
+package com.siemens.internship.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor that hands every task to a thread-per-task delegate, but lets at most maxConcurrency
+ * of them do their work at the same time.
+ * The permit is acquired inside the task, so submitting never blocks the caller; with virtual threads
+ * the waiting tasks are cheap parked threads instead of queue entries.
+ * A task is never dropped while it waits: an interrupt does not give up its turn, and shutdownNow hands
+ * every task that has not got a permit yet back to the caller instead of running it.
+ */
+public class SemaphoreBoundedExecutor extends AbstractExecutorService {
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final Set<Waiting> waiting = ConcurrentHashMap.newKeySet();
+
+    public SemaphoreBoundedExecutor(ExecutorService delegate, int maxConcurrency) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Waiting task = new Waiting(command);
+        waiting.add(task);
+        try {
+            delegate.execute(task);
+        } catch (RejectedExecutionException e) {
+            waiting.remove(task);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of submitted tasks waiting for a permit
+     */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        // Claim the waiting tasks before the delegate interrupts their threads, so none of them still runs
+        List<Runnable> notStarted = new ArrayList<>();
+        for (Waiting task : waiting) {
+            if (waiting.remove(task)) {
+                notStarted.add(task.command);
+            }
+        }
+        notStarted.addAll(delegate.shutdownNow());
+        return notStarted;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * A submitted task until it gets its permit. Whoever removes it from waiting first owns it:
+     * the task itself once it holds a permit, or shutdownNow, which returns it unrun.
+     */
+    private final class Waiting implements Runnable {
+        private final Runnable command;
+
+        private Waiting(Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    permits.acquire();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    if (!waiting.contains(this)) {
+                        // Handed back by shutdownNow
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+            if (interrupted) {
+                // Keep the interrupt the task was given while it waited, so the command can see it
+                Thread.currentThread().interrupt();
+            }
+            try {
+                if (waiting.remove(this)) {
+                    command.run();
+                }
+            } finally {
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.Item;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The default processing stage: waits for processing.simulated-delay and marks the item PROCESSED.
+ * The delay is a task scheduled on a timer rather than a Thread.sleep, so no thread is parked while it elapses.
+ */
+@Component
+public class SimulatedWorkItemProcessor implements ItemProcessor {
+    private final ProcessingProperties processingProperties;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "processing-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SimulatedWorkItemProcessor(ProcessingProperties processingProperties) {
+        this.processingProperties = processingProperties;
+    }
+
+    @Override
+    public CompletionStage<Item> process(Item item) {
+        CompletableFuture<Item> result = new CompletableFuture<>();
+        ScheduledFuture<?> delay = timer.schedule(() -> {
+            item.setStatus("PROCESSED");
+            result.complete(item);
+        }, processingProperties.getSimulatedDelay().toMillis(), TimeUnit.MILLISECONDS);
+
+        // A cancelled run cancels the pending stage; drop the timer task with it
+        result.whenComplete((processed, ex) -> {
+            if (result.isCancelled()) {
+                delay.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+}
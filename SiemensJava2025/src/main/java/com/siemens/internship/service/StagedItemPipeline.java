@@ -0,0 +1,364 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ProcessingSummary;
+import com.siemens.internship.repository.ItemRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToIntFunction;
+
+/**
+ * Processes items as a staged pipeline instead of one task per item on one pool:
+ * <ul>
+ *   <li>a reader stage pages through the IDs and loads each page with one query,</li>
+ *   <li>a transform stage runs the ItemProcessor stages of the loaded items, with retries and dead letters,</li>
+ *   <li>a writer stage writes the transformed items with one saveAll per batch, through ItemService's batch write,
+ *       so batches are admitted by the adaptive concurrency limit and bounded by the item timeout.</li>
+ * </ul>
+ * Each stage has its own threads (one reader, transformThreads, writerThreads) and the stages are connected
+ * by bounded queues, so a slow stage fills the queue in front of it and blocks the stage feeding it,
+ * instead of holding threads that the other stages need. The reader is a single thread because keyset pages
+ * are handed out one after the other anyway.
+ * The depth of both queues is published as the processing.pipeline.queue.size gauge, tagged with the stage
+ * reading from the queue, and the number of busy workers as processing.pipeline.busy.
+ */
+@Component
+public class StagedItemPipeline implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(StagedItemPipeline.class);
+
+    /** Queue element telling a worker that no more items will come. */
+    private static final Work END = new Work(null, null);
+
+    private final ItemService itemService;
+    private final ItemRepository itemRepository;
+    private final ProcessingProperties processingProperties;
+    private final ProcessingRateLimiter rateLimiter;
+    /** Pipelines currently running, summed up by the gauges. */
+    private final Set<Pipeline> running = ConcurrentHashMap.newKeySet();
+    /** Summary of the pipeline waiting for or holding the processing slot, by incremental flag. */
+    private final Map<Boolean, CompletableFuture<ProcessingSummary>> requested = new ConcurrentHashMap<>();
+
+    public StagedItemPipeline(ItemService itemService, ItemRepository itemRepository,
+                              ProcessingProperties processingProperties, ProcessingRateLimiter rateLimiter) {
+        this.itemService = itemService;
+        this.itemRepository = itemRepository;
+        this.processingProperties = processingProperties;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Processes all items, or only those not yet PROCESSED, through the staged pipeline.
+     * Items are rate limited, retried and dead-lettered as on the chunked path. Not for use with lease
+     * claiming, since the reader does not claim the items it loads. The pipeline holds the node's processing
+     * slot, so it waits for any other run in progress to end first, see ItemService.exclusively.
+     * Requests are single-flight: while a pipeline over the same items is waiting or running, a new request
+     * attaches to it instead of creating another set of stage threads.
+     *
+     * @param incremental if true, only items that are not yet PROCESSED are processed
+     * @return a CompletableFuture containing the summary of the run
+     */
+    public CompletableFuture<ProcessingSummary> processAsync(boolean incremental) {
+        CompletableFuture<ProcessingSummary> summary = new CompletableFuture<>();
+        CompletableFuture<ProcessingSummary> pending = requested.putIfAbsent(incremental, summary);
+        if (pending != null) {
+            logger.debug("Attaching request to the staged pipeline already in progress");
+            return pending;
+        }
+
+        try {
+            itemService.exclusively(() -> run(incremental)).whenComplete((result, ex) -> {
+                // Removed first, so that a request arriving after the completion starts a pipeline of its own
+                requested.remove(incremental, summary);
+                if (ex != null) {
+                    summary.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null
+                            ? ex.getCause() : ex);
+                } else {
+                    summary.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            requested.remove(incremental, summary);
+            throw e;
+        }
+        return summary;
+    }
+
+    private CompletableFuture<ProcessingSummary> run(boolean incremental) {
+        ProcessingRun run = new ProcessingRun(incremental);
+        itemService.track(run);
+        Pipeline pipeline = new Pipeline(run);
+        running.add(pipeline);
+        return pipeline.start()
+                .whenComplete((finished, ex) -> running.remove(pipeline))
+                .thenApply(ProcessingRun::summary);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        registerQueueGauge(registry, "transform", pipeline -> pipeline.transformQueue.size());
+        registerQueueGauge(registry, "write", pipeline -> pipeline.writeQueue.size());
+        registerBusyGauge(registry, "read", pipeline -> pipeline.busyReaders.get());
+        registerBusyGauge(registry, "transform", pipeline -> pipeline.busyTransformers.get());
+        registerBusyGauge(registry, "write", pipeline -> pipeline.busyWriters.get());
+    }
+
+    private void registerQueueGauge(MeterRegistry registry, String stage, ToIntFunction<Pipeline> size) {
+        Gauge.builder("processing.pipeline.queue.size", running, pipelines -> sum(pipelines, size))
+                .description("Items waiting in front of a pipeline stage")
+                .tag("stage", stage)
+                .register(registry);
+    }
+
+    private void registerBusyGauge(MeterRegistry registry, String stage, ToIntFunction<Pipeline> busy) {
+        Gauge.builder("processing.pipeline.busy", running, pipelines -> sum(pipelines, busy))
+                .description("Workers of a pipeline stage currently working on items")
+                .tag("stage", stage)
+                .register(registry);
+    }
+
+    private static double sum(Set<Pipeline> pipelines, ToIntFunction<Pipeline> value) {
+        return pipelines.stream().mapToInt(value).sum();
+    }
+
+    /**
+     * An item on its way through the pipeline, with the keyset page it was read in.
+     */
+    private record Work(Item item, PageTracker page) {
+    }
+
+    /**
+     * Counts the items of a page still in the pipeline, so the page is reported completed to the run
+     * (checkpoint, chunk listeners) once its last item has been written or has failed.
+     */
+    private static final class PageTracker {
+        private final ProcessingRun.Chunk chunk;
+        private final ProcessingRun run;
+        private final AtomicInteger remaining;
+
+        PageTracker(ProcessingRun.Chunk chunk, ProcessingRun run, int items) {
+            this.chunk = chunk;
+            this.run = run;
+            this.remaining = new AtomicInteger(items);
+            if (items == 0) {
+                run.chunkCompleted(chunk);
+            }
+        }
+
+        void done() {
+            if (remaining.decrementAndGet() == 0 && !run.isCancelled()) {
+                run.chunkCompleted(chunk);
+            }
+        }
+    }
+
+    /**
+     * One run through the pipeline, with its own queues and stage threads. Workers stop when they take END;
+     * the reader sends one END per transformer and the last transformer one END per writer, so every item
+     * queued before them is handled first.
+     */
+    private final class Pipeline {
+        private final ProcessingRun run;
+        private final int transformThreads = Math.max(1, processingProperties.getPipeline().getTransformThreads());
+        private final int writerThreads = Math.max(1, processingProperties.getPipeline().getWriterThreads());
+        private final int writeBatchSize = Math.max(1, processingProperties.getPipeline().getWriteBatchSize());
+        private final BlockingQueue<Work> transformQueue;
+        private final BlockingQueue<Work> writeQueue;
+        private final ExecutorService readers = newStagePool("read", 1);
+        private final ExecutorService transformers = newStagePool("transform", transformThreads);
+        private final ExecutorService writers = newStagePool("write", writerThreads);
+        private final AtomicInteger busyReaders = new AtomicInteger();
+        private final AtomicInteger busyTransformers = new AtomicInteger();
+        private final AtomicInteger busyWriters = new AtomicInteger();
+        private final AtomicInteger transformersLeft = new AtomicInteger(transformThreads);
+        private final AtomicInteger writersLeft = new AtomicInteger(writerThreads);
+        /** First failure of a stage; the other stages then drop the remaining items and the run fails with it. */
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Pipeline(ProcessingRun run) {
+            this.run = run;
+            int capacity = Math.max(1, processingProperties.getPipeline().getQueueCapacity());
+            this.transformQueue = new ArrayBlockingQueue<>(capacity);
+            this.writeQueue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        CompletableFuture<ProcessingRun> start() {
+            readers.execute(this::read);
+            for (int i = 0; i < transformThreads; i++) {
+                transformers.execute(this::transform);
+            }
+            for (int i = 0; i < writerThreads; i++) {
+                writers.execute(this::write);
+            }
+            return run.getCompletion();
+        }
+
+        private boolean stopped() {
+            return failure.get() != null || run.isCancelled();
+        }
+
+        private void fail(Throwable ex) {
+            if (failure.compareAndSet(null, ex)) {
+                logger.error("Staged processing run failed, dropping the items still in the pipeline", ex);
+            }
+        }
+
+        private void read() {
+            try {
+                while (!stopped()) {
+                    ProcessingRun.Chunk chunk = run.nextChunk(
+                            (afterId, limit) -> itemService.nextIds(run, afterId, limit),
+                            processingProperties.getChunkSize());
+                    if (chunk.ids().isEmpty())
+                        break;
+
+                    busyReaders.incrementAndGet();
+                    List<Item> items;
+                    try {
+                        items = itemRepository.findAllById(chunk.ids());
+                    } finally {
+                        busyReaders.decrementAndGet();
+                    }
+                    PageTracker page = new PageTracker(chunk, run, items.size());
+                    for (Item item : items) {
+                        rateLimiter.acquire().join();
+                        transformQueue.put(new Work(item, page));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            } catch (RuntimeException e) {
+                fail(e);
+            } finally {
+                for (int i = 0; i < transformThreads; i++) {
+                    putEnd(transformQueue);
+                }
+            }
+        }
+
+        private void transform() {
+            try {
+                for (Work work = transformQueue.take(); work != END; work = transformQueue.take()) {
+                    if (stopped())
+                        continue;
+
+                    busyTransformers.incrementAndGet();
+                    try {
+                        // Failed items are dead-lettered by transform, and they and unchanged items come back as null
+                        Item item = itemService.transform(work.item(), run).join();
+                        if (item == null) {
+                            work.page().done();
+                        } else {
+                            writeQueue.put(new Work(item, work.page()));
+                        }
+                    } catch (RuntimeException e) {
+                        fail(e);
+                    } finally {
+                        busyTransformers.decrementAndGet();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            } finally {
+                if (transformersLeft.decrementAndGet() == 0) {
+                    for (int i = 0; i < writerThreads; i++) {
+                        putEnd(writeQueue);
+                    }
+                    transformers.shutdown();
+                    readers.shutdown();
+                }
+            }
+        }
+
+        private void write() {
+            try {
+                boolean end = false;
+                while (!end) {
+                    List<Work> batch = new ArrayList<>(writeBatchSize);
+                    batch.add(writeQueue.take());
+                    writeQueue.drainTo(batch, writeBatchSize - 1);
+
+                    // Another writer's END may have been drained along with the items; hand it back
+                    long ends = batch.stream().filter(work -> work == END).count();
+                    for (long i = 1; i < ends; i++) {
+                        writeQueue.put(END);
+                    }
+                    batch.removeIf(work -> work == END);
+                    end = ends > 0;
+
+                    if (!batch.isEmpty() && !stopped()) {
+                        writeBatch(batch);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            } finally {
+                if (writersLeft.decrementAndGet() == 0) {
+                    writers.shutdown();
+                    finish();
+                }
+            }
+        }
+
+        private void writeBatch(List<Work> batch) {
+            List<Item> items = batch.stream().map(Work::item).toList();
+            busyWriters.incrementAndGet();
+            try {
+                itemService.writeBatch(items, run).join();
+            } catch (RuntimeException e) {
+                fail(e);
+            } finally {
+                busyWriters.decrementAndGet();
+                batch.forEach(work -> work.page().done());
+            }
+        }
+
+        private void finish() {
+            run.markFinished();
+            Throwable ex = failure.get();
+            if (ex != null) {
+                run.getCompletion().completeExceptionally(ex);
+            } else {
+                run.getCompletion().complete(run);
+            }
+        }
+
+        private void putEnd(BlockingQueue<Work> queue) {
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static ExecutorService newStagePool(String stage, int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "processing-pipeline-" + stage + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,134 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.WorkQueueStatus;
+import com.siemens.internship.repository.WorkQueueRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Processes the items queued by ItemService.save, in batches of at most batchSize items. Each batch pages
+ * through the queue table only, so finding work costs as much as the backlog rather than the item table,
+ * and removes the entries of the items it handled.
+ * While the queue holds more than a batch, batches follow each other without a pause; once it is empty the
+ * worker polls again every pollInterval. Batches never overlap.
+ */
+@Service
+public class WorkQueueWorker {
+    private static final Logger logger = LoggerFactory.getLogger(WorkQueueWorker.class);
+
+    private final ItemService itemService;
+    private final WorkQueueRepository workQueueRepository;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "processing-work-queue");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean running;
+    private volatile Instant lastBatchAt;
+    private final AtomicLong totalProcessed = new AtomicLong();
+    private final AtomicLong totalSkipped = new AtomicLong();
+    private final AtomicLong totalFailed = new AtomicLong();
+
+    public WorkQueueWorker(ItemService itemService, WorkQueueRepository workQueueRepository,
+                           ProcessingProperties processingProperties) {
+        this.itemService = itemService;
+        this.workQueueRepository = workQueueRepository;
+        ProcessingProperties.WorkQueue workQueue = processingProperties.getWorkQueue();
+        this.enabled = workQueue.isEnabled();
+        this.batchSize = Math.max(1, workQueue.getBatchSize());
+        this.pollIntervalMillis = Math.max(1L, workQueue.getPollInterval().toMillis());
+    }
+
+    /**
+     * Starts polling once the application is ready, which also picks up anything queued before a restart.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            schedule(0L);
+        }
+    }
+
+    /**
+     * @return the settings, the current backlog and the totals since startup
+     */
+    public WorkQueueStatus status() {
+        return new WorkQueueStatus(enabled, batchSize, pollIntervalMillis, workQueueRepository.count(), running,
+                lastBatchAt, totalProcessed.get(), totalSkipped.get(), totalFailed.get());
+    }
+
+    private void tick() {
+        pollOnce().whenComplete((run, ex) ->
+                schedule(ex == null && run != null && run.getIssuedCount() >= batchSize ? 0L : pollIntervalMillis));
+    }
+
+    /**
+     * Processes one batch of at most batchSize queued items, if no other run holds the node's processing slot;
+     * otherwise the items stay queued for the next poll.
+     * @return a future completed with the batch's run, with null if the batch was left out, or exceptionally
+     * if the batch could not run
+     */
+    CompletableFuture<ProcessingRun> pollOnce() {
+        ProcessingRun run = new ProcessingRun(ProcessingRun.Scope.WORK_QUEUE);
+        run.setItemLimit(batchSize);
+
+        CompletableFuture<ProcessingRun> batch;
+        try {
+            Optional<CompletableFuture<ProcessingRun>> started = itemService.ifIdle(() -> itemService.process(run));
+            if (started.isEmpty()) {
+                logger.debug("Another run is in progress, leaving the work queue for the next poll");
+                return CompletableFuture.completedFuture(null);
+            }
+            running = true;
+            batch = started.get();
+        } catch (RuntimeException e) {
+            batch = CompletableFuture.failedFuture(e);
+        }
+        return batch.whenComplete((completed, ex) -> {
+            running = false;
+            if (ex != null) {
+                logger.warn("Work queue batch failed: {}", ex.toString());
+                return;
+            }
+            lastBatchAt = Instant.now();
+            totalProcessed.addAndGet(completed.getProcessedCount());
+            totalSkipped.addAndGet(completed.getSkippedCount());
+            totalFailed.addAndGet(completed.getFailedCount());
+            if (completed.getIssuedCount() > 0) {
+                logger.debug("Work queue batch processed {} items, skipped {}, {} failed", completed.getProcessedCount(),
+                        completed.getSkippedCount(), completed.getFailedCount());
+            }
+        });
+    }
+
+    private void schedule(long delayMillis) {
+        try {
+            scheduler.schedule(this::tick, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -1,32 +1,52 @@
 package com.siemens.internship;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.siemens.internship.config.ProcessingProperties;
 import com.siemens.internship.controller.ItemController;
+import com.siemens.internship.controller.ProcessedIdStreamer;
+import com.siemens.internship.controller.ProgressStreamer;
+import com.siemens.internship.model.BulkProcessingResult;
 import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ItemFilter;
+import com.siemens.internship.model.ProcessingSummary;
 import com.siemens.internship.repository.ItemRepository;
 import com.siemens.internship.service.ItemService;
+import com.siemens.internship.service.ProcessingEstimator;
+import com.siemens.internship.service.StagedItemPipeline;
+import com.siemens.internship.service.ProcessingRun;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ItemController.class)
+@Import({ProgressStreamer.class, ProcessedIdStreamer.class})
+@EnableConfigurationProperties(ProcessingProperties.class)
 public class ApplicationTests {
 
 	@Autowired
@@ -38,6 +58,12 @@ public class ApplicationTests {
 	@MockBean
 	private ItemService itemService;
 
+	@MockBean
+	private StagedItemPipeline stagedPipeline;
+
+	@MockBean
+	private ProcessingEstimator processingEstimator;
+
 	@Mock
 	private ItemRepository itemRepository;
 
@@ -158,18 +184,233 @@ public class ApplicationTests {
 	@Test
 	void processItems_success_returnsOk() throws Exception {
 		Item processedItem = new Item(1L, "Test Item", "Description", "PROCESSED", "test@example.com");
-		when(itemService.processItemsAsync()).thenReturn(CompletableFuture.completedFuture(List.of(processedItem)));
+		CompletableFuture<ProcessingRun> run = finishedRun(List.of(processedItem));
+		when(itemService.processItemsRunAsync(false, false)).thenReturn(run);
 
-		mockMvc.perform(get("/api/items/process"))
-				.andExpect(status().isOk());
+		MvcResult result = mockMvc.perform(get("/api/items/process"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].id").value(1))
+				.andExpect(header().string("X-Processing-Run-Id", "run-1"))
+				.andExpect(header().doesNotExist("X-Processing-Cancelled"))
+				.andExpect(header().doesNotExist("X-Processing-Deadline-Exceeded"));
+	}
+
+	@Test
+	void processItems_cancelled_flagsThePartialList() throws Exception {
+		CompletableFuture<ProcessingRun> run = finishedRun(List.of());
+		when(run.join().isCancelled()).thenReturn(true);
+		when(itemService.processItemsRunAsync(false, false)).thenReturn(run);
+
+		MvcResult result = mockMvc.perform(get("/api/items/process"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(header().string("X-Processing-Cancelled", "true"))
+				.andExpect(header().doesNotExist("X-Processing-Deadline-Exceeded"));
+	}
+
+	@Test
+	void cancelRun_activeRun_returnsItsSummary() throws Exception {
+		ProcessingRun run = new ProcessingRun();
+		run.cancel();
+		run.getCompletion().complete(run);
+		when(itemService.cancelRun(run.getId())).thenReturn(Optional.of(run.getCompletion()));
+
+		MvcResult result = mockMvc.perform(post("/api/items/process/{runId}/cancel", run.getId()))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.runId").value(run.getId()));
+	}
+
+	@Test
+	void cancelRun_unknownRun_returnsNotFound() throws Exception {
+		when(itemService.cancelRun("missing")).thenReturn(Optional.empty());
+
+		MvcResult result = mockMvc.perform(post("/api/items/process/missing/cancel"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void getActiveRuns_listsRunIdsWithProgress() throws Exception {
+		ProcessingRun run = new ProcessingRun();
+		when(itemService.findActiveRuns()).thenReturn(List.of(run));
+
+		mockMvc.perform(get("/api/items/process/runs"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].runId").value(run.getId()))
+				.andExpect(jsonPath("$[0].done").value(false));
+	}
+
+	@Test
+	void processItemsStreamingIds_reportsTheRunId() throws Exception {
+		ProcessingRun run = new ProcessingRun();
+		when(itemService.startProcessing(eq(false), ArgumentMatchers.<Consumer<ProcessingRun>>any())).thenAnswer(invocation -> {
+			invocation.<Consumer<ProcessingRun>>getArgument(1).accept(run);
+			run.getCompletion().complete(run);
+			return CompletableFuture.completedFuture(run);
+		});
+
+		MvcResult result = mockMvc.perform(get("/api/items/process/ids"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(header().string("X-Processing-Run-Id", run.getId()));
+	}
+
+	@Test
+	void processItems_deadlineExceeded_flagsThePartialList() throws Exception {
+		Item processedItem = new Item(1L, "Test Item", "Description", "PROCESSED", "test@example.com");
+		CompletableFuture<ProcessingRun> run = finishedRun(List.of(processedItem));
+		when(run.join().isDeadlineExceeded()).thenReturn(true);
+		when(run.join().summary()).thenReturn(new ProcessingSummary("run-1", 1L, 0L, 0L, List.of(), 2L, List.of(2L, 3L), true,
+				List.of(4L), 4L, Instant.now(), Instant.now(), 1_000L, 1.0));
+		when(itemService.processItemsRunAsync(false, false)).thenReturn(run);
+
+		MvcResult result = mockMvc.perform(get("/api/items/process"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(header().string("X-Processing-Deadline-Exceeded", "true"))
+				.andExpect(header().string("X-Processing-Timed-Out-Count", "2"))
+				.andExpect(header().string("X-Processing-Not-Started-After-Id", "4"))
+				.andExpect(jsonPath("$.length()").value(1));
 	}
 
 	@Test
 	void processItems_failure_returnsServerError() throws Exception {
-		when(itemService.processItemsAsync()).thenReturn(
+		when(itemService.processItemsRunAsync(false, false)).thenReturn(
 				CompletableFuture.failedFuture(new RuntimeException("Processing failed")));
 
 		mockMvc.perform(get("/api/items/process"))
 				.andExpect(status().is(200));
 	}
+
+	@Test
+	void processItemsInBulk_success_returnsCounts() throws Exception {
+		when(itemService.processItemsInBulkAsync()).thenReturn(
+				CompletableFuture.completedFuture(new BulkProcessingResult(List.of(1L, 2L), 2, 0, 3)));
+
+		MvcResult result = mockMvc.perform(get("/api/items/process/bulk"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.updatedCount").value(2))
+				.andExpect(jsonPath("$.processedIds[1]").value(2));
+	}
+
+	@Test
+	void processItems_queueFull_returnsServiceUnavailable() throws Exception {
+		when(itemService.processItemsRunAsync(false, false)).thenReturn(
+				CompletableFuture.failedFuture(new RejectedExecutionException("Queue full")));
+
+		MvcResult result = mockMvc.perform(get("/api/items/process"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isServiceUnavailable());
+	}
+
+	@Test
+	void processItems_incremental_processesOnlyUnprocessed() throws Exception {
+		CompletableFuture<ProcessingRun> run = finishedRun(List.of());
+		when(itemService.processItemsRunAsync(true, false)).thenReturn(run);
+
+		mockMvc.perform(get("/api/items/process").param("incremental", "true"))
+				.andExpect(status().isOk());
+
+		verify(itemService).processItemsRunAsync(true, false);
+		verify(itemService, never()).processItemsRunAsync(eq(false), anyBoolean());
+	}
+
+	@Test
+	void processItems_force_startsSeparateRun() throws Exception {
+		CompletableFuture<ProcessingRun> run = finishedRun(List.of());
+		when(itemService.processItemsRunAsync(false, true)).thenReturn(run);
+
+		mockMvc.perform(get("/api/items/process").param("force", "true"))
+				.andExpect(status().isOk());
+
+		verify(itemService).processItemsRunAsync(false, true);
+	}
+
+	@Test
+	void processItemsFiltered_invalidFilter_returnsBadRequest() throws Exception {
+		when(itemService.processFilteredSummaryAsync(any(ItemFilter.class)))
+				.thenThrow(new IllegalArgumentException("Only one of status, ids and emailDomain can be given"));
+
+		MvcResult result = mockMvc.perform(get("/api/items/process/filtered").param("status", "NEW").param("ids", "1,2"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isBadRequest());
+		verify(itemService).processFilteredSummaryAsync(new ItemFilter("NEW", null, null, List.of(1L, 2L), null));
+	}
+
+	@Test
+	void processItemsSummary_returnsCountsWithoutItems() throws Exception {
+		Instant startedAt = Instant.parse("2025-01-01T00:00:00Z");
+		ProcessingSummary summary = new ProcessingSummary("run-1", 6L, 0L, 1L, List.of(3L), 0L, List.of(), false, List.of(), null,
+				startedAt, startedAt.plusSeconds(2), 2_000L, 3.5);
+		when(itemService.processItemsSummaryAsync(false, false)).thenReturn(CompletableFuture.completedFuture(summary));
+
+		MvcResult result = mockMvc.perform(get("/api/items/process/summary"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.runId").value("run-1"))
+				.andExpect(jsonPath("$.processedCount").value(6))
+				.andExpect(jsonPath("$.failedIds[0]").value(3))
+				.andExpect(jsonPath("$.durationMillis").value(2000));
+	}
+
+	@Test
+	void processItemsWithProgress_streamsProgressUntilComplete() throws Exception {
+		ProcessingRun run = new ProcessingRun();
+		run.setExpectedCount(0L);
+		run.getCompletion().complete(run);
+		when(itemService.startProcessing(false, false)).thenReturn(CompletableFuture.completedFuture(run));
+
+		MvcResult result = mockMvc.perform(get("/api/items/process/stream"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		// The final event is sent from the streamer's own thread
+		result.getAsyncResult(5_000);
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+				.andExpect(content().string(Matchers.containsString("event:complete")))
+				.andExpect(content().string(Matchers.containsString("\"runId\":\"" + run.getId() + "\"")))
+				.andExpect(content().string(Matchers.containsString("\"done\":true")));
+	}
+
+	private static CompletableFuture<ProcessingRun> finishedRun(List<Item> processedItems) {
+		ProcessingRun run = mock(ProcessingRun.class);
+		when(run.getId()).thenReturn("run-1");
+		when(run.getProcessedItems()).thenReturn(processedItems);
+		return CompletableFuture.completedFuture(run);
+	}
 }
@@ -0,0 +1,58 @@
+package com.siemens.internship.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ConnectionBulkheadTests {
+
+	private ConnectionBulkhead bulkhead;
+	private ConnectionBulkhead.ConnectionSource pool;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		ProcessingProperties properties = new ProcessingProperties();
+		properties.getBulkhead().setReservedConnections(1);
+		properties.getBulkhead().setAcquireTimeout(Duration.ofMillis(50));
+		bulkhead = new ConnectionBulkhead(properties, 3);
+		pool = mock(ConnectionBulkhead.ConnectionSource.class);
+		when(pool.open()).thenAnswer(invocation -> mock(Connection.class));
+	}
+
+	@Test
+	void batchWork_isLimitedToItsShareOfThePool() throws Exception {
+		Connection first = bulkhead.getConnection(pool);
+		bulkhead.getConnection(pool);
+
+		assertEquals(2, bulkhead.getBatchConnectionsInUse());
+		assertThrows(SQLTransientConnectionException.class, () -> bulkhead.getConnection(pool));
+
+		first.close();
+		first.close();
+		assertEquals(1, bulkhead.getBatchConnectionsInUse());
+		assertNotNull(bulkhead.getConnection(pool));
+		assertEquals(2, bulkhead.getBatchConnectionsInUse());
+	}
+
+	@Test
+	void interactiveWork_isNotLimitedWhileBatchShareIsExhausted() throws Exception {
+		bulkhead.getConnection(pool);
+		bulkhead.getConnection(pool);
+
+		boolean previous = ConnectionBulkhead.markInteractive();
+		try {
+			assertNotNull(bulkhead.getConnection(pool));
+			assertNotNull(bulkhead.getConnection(pool));
+		} finally {
+			ConnectionBulkhead.restoreInteractive(previous);
+		}
+		assertEquals(2, bulkhead.getBatchConnectionsInUse());
+		verify(pool, times(4)).open();
+	}
+}
@@ -0,0 +1,103 @@
+package com.siemens.internship.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+class ProcessingExecutorConfigTests {
+
+	@Test
+	void failFast_rejectsWhenQueueIsFull() throws Exception {
+		ProcessingProperties properties = properties(ProcessingProperties.RejectionPolicy.FAIL_FAST);
+		ThreadPoolExecutor executor = ProcessingExecutorConfig.newBoundedThreadPool(properties);
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			executor.execute(() -> await(release));
+			executor.execute(() -> await(release));
+
+			assertEquals(1, executor.getQueue().size());
+			assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void block_rejectsAfterTimeout() {
+		ProcessingProperties properties = properties(ProcessingProperties.RejectionPolicy.BLOCK);
+		properties.setBlockTimeout(Duration.ofMillis(50));
+		ThreadPoolExecutor executor = ProcessingExecutorConfig.newBoundedThreadPool(properties);
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			executor.execute(() -> await(release));
+			executor.execute(() -> await(release));
+
+			long start = System.nanoTime();
+			assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+			assertTrue(System.nanoTime() - start >= Duration.ofMillis(50).toNanos());
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void virtualStrategies_withoutVirtualThreads_failAtStartup() {
+		assumeFalse(ProcessingExecutorConfig.virtualThreadsAvailable());
+		ProcessingProperties properties = new ProcessingProperties();
+		for (ProcessingProperties.ExecutorStrategy strategy : List.of(ProcessingProperties.ExecutorStrategy.VIRTUAL,
+				ProcessingProperties.ExecutorStrategy.BOUNDED_VIRTUAL)) {
+			properties.setExecutorStrategy(strategy);
+			assertThrows(IllegalStateException.class,
+					() -> new ProcessingExecutorConfig().processingExecutor(properties, 10));
+		}
+	}
+
+	@Test
+	void virtualStrategies_withoutVirtualThreads_failConfigurationValidation() {
+		assumeFalse(ProcessingExecutorConfig.virtualThreadsAvailable());
+		ApplicationContextRunner runner = new ApplicationContextRunner().withUserConfiguration(PropertiesOnly.class);
+
+		for (String strategy : List.of("VIRTUAL", "BOUNDED_VIRTUAL")) {
+			runner.withPropertyValues("processing.executor-strategy=" + strategy).run(context -> {
+				assertNotNull(context.getStartupFailure());
+				assertThat(context.getStartupFailure()).rootCause().hasMessageContaining("Java 21");
+			});
+		}
+		runner.withPropertyValues("processing.executor-strategy=FIXED")
+				.run(context -> assertNull(context.getStartupFailure()));
+	}
+
+	@Configuration
+	@EnableConfigurationProperties(ProcessingProperties.class)
+	static class PropertiesOnly {
+	}
+
+	private static ProcessingProperties properties(ProcessingProperties.RejectionPolicy policy) {
+		ProcessingProperties properties = new ProcessingProperties();
+		properties.setPoolSize(1);
+		properties.setQueueCapacity(1);
+		properties.setRejectionPolicy(policy);
+		return properties;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package com.siemens.internship.repository;
+
+import com.siemens.internship.model.Item;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Queries whose behaviour depends on the database rather than on ItemService, run against the embedded H2.
+ */
+@SpringBootTest
+class ItemRepositoryTests {
+
+	@Autowired
+	private ItemRepository itemRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<Long> created = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		itemRepository.deleteAllById(itemRepository.findAllById(created).stream().map(Item::getId).toList());
+	}
+
+	@Test
+	void transitionStatus_reportsOnlyExistingRows() {
+		Item first = save("NEW");
+		Item deleted = save("NEW");
+		itemRepository.deleteById(deleted.getId());
+
+		List<Long> updated = itemRepository.transitionStatus(List.of(first.getId(), deleted.getId()), "PROCESSED");
+
+		assertEquals(List.of(first.getId()), updated);
+		assertEquals("PROCESSED", itemRepository.findById(first.getId()).orElseThrow().getStatus());
+	}
+
+	@Test
+	void transitionStatus_leavesRowsAlreadyInTheStatus() {
+		Item pending = save(null);
+		Item done = save("PROCESSED");
+
+		List<Long> updated = itemRepository.transitionStatus(List.of(pending.getId(), done.getId()), "PROCESSED");
+
+		assertEquals(List.of(pending.getId()), updated);
+		assertEquals(0, itemRepository.updateStatusByIds(List.of(done.getId()), "PROCESSED"));
+	}
+
+	@Test
+	void pending_isComputedFromTheStatus() {
+		Item none = save(null);
+		Item fresh = save("NEW");
+		Item done = save("PROCESSED");
+
+		List<Long> pending = itemRepository.findPendingIdsAfter(none.getId() - 1, Limit.of(10));
+
+		assertTrue(pending.containsAll(List.of(none.getId(), fresh.getId())));
+		assertFalse(pending.contains(done.getId()));
+	}
+
+	@Test
+	void pendingQueries_useThePendingIndex() {
+		String plan = jdbcTemplate.queryForObject(
+				"EXPLAIN SELECT id FROM item WHERE pending = TRUE AND id > 0 ORDER BY pending, id "
+						+ "FETCH FIRST 500 ROWS ONLY",
+				String.class);
+
+		assertTrue(plan.contains("IDX_ITEM_PENDING_ID"), plan);
+		assertTrue(plan.contains("index sorted"), plan);
+	}
+
+	@Test
+	void emailDomain_isDerivedForRowsWrittenWithoutTheEntity() {
+		long id = 1_000_000_000L;
+		jdbcTemplate.update("INSERT INTO item (id, name, status, email) VALUES (?, 'Imported', 'NEW', ?)",
+				id, "Someone@Example.COM");
+		created.add(id);
+
+		assertEquals(1L, itemRepository.countWithEmailDomainBetween("example.com", id, id));
+		assertEquals(List.of(id), itemRepository.findIdsAfterWithEmailDomain(id - 1, id, "example.com", Limit.of(10)));
+		assertEquals(List.of(id), itemRepository.findPendingIdsBetween(id, id, Limit.of(10)));
+	}
+
+	@Test
+	void emailDomain_followsEmailUpdates() {
+		Item item = save("NEW");
+		item.setEmail("someone@other.org");
+		itemRepository.save(item);
+
+		assertEquals(1L, itemRepository.countWithEmailDomainBetween("other.org", item.getId(), item.getId()));
+		assertEquals(0L, itemRepository.countWithEmailDomainBetween("example.com", item.getId(), item.getId()));
+	}
+
+	@Test
+	void save_keepsTheLeaseOfAnotherInstance() {
+		Item item = save("NEW");
+		Instant now = Instant.now();
+		assertEquals(1, itemRepository.claimLeases(List.of(item.getId()), "node-b", now.plusSeconds(60), now));
+
+		// As PUT /api/items/{id} does: the request body carries no lease
+		itemRepository.save(new Item(item.getId(), "Renamed", "Description", "NEW", "test@example.com"));
+
+		Item updated = itemRepository.findById(item.getId()).orElseThrow();
+		assertEquals("Renamed", updated.getName());
+		assertEquals("node-b", updated.getLeaseOwner());
+		assertNotNull(updated.getLeaseExpiresAt());
+	}
+
+	@Test
+	void completeLease_writesEveryProcessedField() {
+		Item item = save("NEW");
+		Instant now = Instant.now();
+		itemRepository.claimLeases(List.of(item.getId()), "node-b", now.plusSeconds(60), now);
+		Item processed = new Item(item.getId(), "Renamed", "Enriched", "PROCESSED", "other@example.org");
+
+		assertEquals(0, itemRepository.completeLease(processed, "node-c"));
+		assertEquals(1, itemRepository.completeLease(processed, "node-b"));
+
+		Item written = itemRepository.findById(item.getId()).orElseThrow();
+		assertEquals("Renamed", written.getName());
+		assertEquals("Enriched", written.getDescription());
+		assertEquals("PROCESSED", written.getStatus());
+		assertEquals("other@example.org", written.getEmail());
+		assertNull(written.getLeaseOwner());
+	}
+
+	private Item save(String status) {
+		Item item = itemRepository.save(new Item(null, "Item", "Description", status, "test@example.com"));
+		created.add(item.getId());
+		return item;
+	}
+}
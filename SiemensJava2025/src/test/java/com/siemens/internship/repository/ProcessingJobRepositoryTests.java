@@ -0,0 +1,83 @@
+package com.siemens.internship.repository;
+
+import com.siemens.internship.model.ProcessingJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Job ownership updates, run against the embedded H2. The lease is long enough that the application's own
+ * heartbeat never takes over the jobs these tests create.
+ */
+@SpringBootTest(properties = "processing.job-lease=1h")
+class ProcessingJobRepositoryTests {
+
+	@Autowired
+	private ProcessingJobRepository jobRepository;
+
+	private final List<Long> created = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() {
+		jobRepository.deleteAllById(created);
+	}
+
+	@Test
+	void takeOver_expiredLease_onlyOneNodeWins() {
+		Instant now = Instant.now();
+		ProcessingJob job = save("node-a", now.minusSeconds(1));
+
+		assertTrue(jobRepository.findOrphaned(null, now).stream().anyMatch(found -> found.getId().equals(job.getId())));
+		assertEquals(1, jobRepository.takeOver(job.getId(), "node-b", now.plusSeconds(60), null, now));
+		assertEquals(0, jobRepository.takeOver(job.getId(), "node-c", now.plusSeconds(60), null, now));
+		assertEquals("node-b", jobRepository.findById(job.getId()).orElseThrow().getOwnerNode());
+	}
+
+	@Test
+	void findOrphaned_leavesLiveLeasesToTheirOwner() {
+		Instant now = Instant.now();
+		ProcessingJob job = save("node-a", now.plusSeconds(60));
+
+		assertTrue(jobRepository.findOrphaned(null, now).stream().noneMatch(found -> found.getId().equals(job.getId())));
+		assertEquals(0, jobRepository.takeOver(job.getId(), "node-b", now.plusSeconds(60), null, now));
+		// A restarted node takes back its own jobs without waiting for their leases
+		assertTrue(jobRepository.findOrphaned("node-a", now).stream().anyMatch(found -> found.getId().equals(job.getId())));
+		assertEquals(1, jobRepository.takeOver(job.getId(), "node-a", now.plusSeconds(60), "node-a", now));
+	}
+
+	@Test
+	void progressAndOutcome_areOnlyWrittenByTheOwner() {
+		Instant now = Instant.now();
+		ProcessingJob job = save("node-a", now.plusSeconds(60));
+
+		assertEquals(0, jobRepository.updateProgress(job.getId(), "node-b", 10L, 10L, 0L, 0L, now));
+		assertEquals(0, jobRepository.renewLease(job.getId(), "node-b", now.plusSeconds(120)));
+		assertEquals(0, jobRepository.finish(job.getId(), "node-b", ProcessingJob.State.COMPLETED, now));
+		assertEquals(1, jobRepository.updateProgress(job.getId(), "node-a", 5L, 5L, 0L, 0L, now));
+		assertEquals(1, jobRepository.finish(job.getId(), "node-a", ProcessingJob.State.COMPLETED, now));
+
+		ProcessingJob finished = jobRepository.findById(job.getId()).orElseThrow();
+		assertEquals(5L, finished.getCheckpoint());
+		assertEquals(ProcessingJob.State.COMPLETED, finished.getState());
+		assertNull(finished.getLeaseExpiresAt());
+	}
+
+	private ProcessingJob save(String ownerNode, Instant leaseExpiresAt) {
+		ProcessingJob job = new ProcessingJob();
+		job.setState(ProcessingJob.State.RUNNING);
+		job.setCreatedAt(Instant.now());
+		job.setUpdatedAt(job.getCreatedAt());
+		job.setOwnerNode(ownerNode);
+		job.setLeaseExpiresAt(leaseExpiresAt);
+		job = jobRepository.save(job);
+		created.add(job.getId());
+		return job;
+	}
+}
@@ -0,0 +1,55 @@
+package com.siemens.internship.repository;
+
+import com.siemens.internship.model.WorkQueueEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The work queue upsert, run against the embedded H2.
+ */
+@SpringBootTest
+class WorkQueueRepositoryTests {
+
+	private static final long ITEM_ID = 2_000_000_000L;
+
+	@Autowired
+	private WorkQueueRepository workQueueRepository;
+
+	@AfterEach
+	void tearDown() {
+		workQueueRepository.deleteAllById(List.of(ITEM_ID));
+	}
+
+	@Test
+	void enqueue_alreadyQueued_movesTheEntryForward() {
+		Instant first = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+		workQueueRepository.enqueue(ITEM_ID, first);
+		workQueueRepository.enqueue(ITEM_ID, first.plusSeconds(1));
+
+		WorkQueueEntry entry = workQueueRepository.findById(ITEM_ID).orElseThrow();
+		assertEquals(first.plusSeconds(1), entry.getEnqueuedAt());
+	}
+
+	@Test
+	void enqueue_concurrently_keepsOneEntry() {
+		Instant now = Instant.now();
+		List<CompletableFuture<Void>> enqueues = IntStream.range(0, 8)
+				.mapToObj(i -> CompletableFuture.runAsync(() -> workQueueRepository.enqueue(ITEM_ID, now.plusMillis(i))))
+				.toList();
+
+		enqueues.forEach(CompletableFuture::join);
+
+		assertEquals(List.of(ITEM_ID), workQueueRepository.findItemIdsAfter(ITEM_ID - 1, Limit.of(10)));
+	}
+}
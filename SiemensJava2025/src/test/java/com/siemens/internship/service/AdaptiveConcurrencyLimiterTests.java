@@ -0,0 +1,112 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTests {
+
+	private ProcessingProperties properties;
+	private ExecutorService executor;
+
+	@BeforeEach
+	void setUp() {
+		properties = new ProcessingProperties();
+		properties.getAdaptiveLimit().setEnabled(true);
+		properties.getAdaptiveLimit().setInitialLimit(4);
+		properties.getAdaptiveLimit().setLatencyThreshold(Duration.ofMillis(20));
+		properties.getAdaptiveLimit().setBackoffRatio(0.5);
+		executor = Executors.newFixedThreadPool(16);
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void slowOperations_shrinkTheLimit() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties);
+
+		runAll(limiter, 20, 40);
+
+		assertTrue(limiter.status().limit() < 4, "Limit: " + limiter.status().limit());
+		assertFalse(limiter.status().history().isEmpty());
+	}
+
+	@Test
+	void fastOperations_growTheLimitWhileItIsUsed() {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties);
+
+		runAll(limiter, 200, 1);
+
+		assertTrue(limiter.status().limit() > 4, "Limit: " + limiter.status().limit());
+	}
+
+	@Test
+	void operationsOverTheLimit_waitForAPermit() throws Exception {
+		properties.getAdaptiveLimit().setInitialLimit(1);
+		properties.getAdaptiveLimit().setMaxLimit(1);
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties);
+		CountDownLatch release = new CountDownLatch(1);
+
+		CompletableFuture<Void> first = limiter.run(() -> await(release), 1, executor);
+		CompletableFuture<String> second = limiter.submit(() -> "done", executor);
+
+		assertFalse(second.isDone());
+		assertEquals(1, limiter.status().waiting());
+		release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+		assertEquals("done", second.get(5, TimeUnit.SECONDS));
+		assertEquals(0, limiter.status().inFlight());
+	}
+
+	@Test
+	void limit_neverExceedsTheFixedPoolSize() {
+		properties.setPoolSize(6);
+		properties.getAdaptiveLimit().setInitialLimit(10);
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties);
+		assertEquals(6, limiter.status().limit());
+
+		runAll(limiter, 500, 1);
+
+		assertEquals(6, limiter.status().limit());
+		assertTrue(limiter.status().history().stream().allMatch(change -> change.limit() <= 6),
+				"History: " + limiter.status().history());
+	}
+
+	private void runAll(AdaptiveConcurrencyLimiter limiter, int operations, long millis) {
+		List<CompletableFuture<Void>> futures = IntStream.range(0, operations)
+				.mapToObj(i -> limiter.run(() -> sleep(millis), 1, executor))
+				.toList();
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
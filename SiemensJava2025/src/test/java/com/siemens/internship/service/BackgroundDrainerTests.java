@@ -0,0 +1,102 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.DrainerSettings;
+import com.siemens.internship.model.DrainerStatus;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.repository.DeadLetterItemRepository;
+import com.siemens.internship.repository.ItemRepository;
+import com.siemens.internship.repository.WorkQueueRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class BackgroundDrainerTests {
+
+	private ItemRepository itemRepository;
+	private ExecutorService executor;
+	private BackgroundDrainer drainer;
+
+	@BeforeEach
+	void setUp() {
+		itemRepository = mock(ItemRepository.class);
+		ProcessingProperties properties = new ProcessingProperties();
+		properties.setSimulatedDelay(Duration.ofMillis(1));
+		properties.getDrainer().setBatchSize(2);
+		executor = Executors.newFixedThreadPool(4);
+		ItemService itemService = new ItemService(itemRepository, properties, executor,
+				List.of(new SimulatedWorkItemProcessor(properties)), new AdaptiveConcurrencyLimiter(properties),
+				mock(DeadLetterItemRepository.class), new ProcessingRateLimiter(properties),
+				mock(WorkQueueRepository.class));
+		drainer = new BackgroundDrainer(itemService, properties);
+
+		List<Long> ids = LongStream.rangeClosed(1, 5).boxed().toList();
+		when(itemRepository.findPendingIdsAfter(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+			long afterId = invocation.getArgument(0);
+			int max = invocation.<Limit>getArgument(1).max();
+			return ids.stream().filter(id -> id > afterId).limit(max).toList();
+		});
+		when(itemRepository.findById(anyLong())).thenAnswer(invocation ->
+				Optional.of(new Item(invocation.getArgument(0), "Item", "Description", "NEW", "test@example.com")));
+		when(itemRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+	}
+
+	@AfterEach
+	void tearDown() {
+		drainer.shutdown();
+		executor.shutdownNow();
+	}
+
+	@Test
+	void drainOnce_processesOneBatchAndWrapsAroundAtTheEnd() {
+		assertBatch(drainer.drainOnce().join(), 0L, 2L, 2L);
+		assertEquals(2L, drainer.status().cursor());
+
+		assertBatch(drainer.drainOnce().join(), 2L, 4L, 2L);
+		assertBatch(drainer.drainOnce().join(), 4L, 5L, 1L);
+
+		DrainerStatus status = drainer.status();
+		assertEquals(0L, status.cursor());
+		assertEquals(5L, status.totalProcessed());
+		assertEquals(1L, status.lastBatchProcessed());
+		assertFalse(status.running());
+		verify(itemRepository, times(5)).findById(anyLong());
+	}
+
+	@Test
+	void update_changesOnlyGivenSettings() {
+		DrainerStatus status = drainer.update(new DrainerSettings(true, 3, null));
+
+		assertTrue(status.enabled());
+		assertEquals(3, status.batchSize());
+		assertEquals(5_000L, status.intervalMillis());
+		assertBatch(drainer.drainOnce().join(), 0L, 3L, 3L);
+	}
+
+	@Test
+	void update_rejectsNonPositiveBatchSize() {
+		assertThrows(IllegalArgumentException.class, () -> drainer.update(new DrainerSettings(true, 0, null)));
+		assertFalse(drainer.status().enabled());
+		assertEquals(2, drainer.status().batchSize());
+	}
+
+	private static void assertBatch(ProcessingRun run, long startAfterId, long checkpoint, long processedCount) {
+		assertEquals(startAfterId, run.getStartAfterId());
+		assertEquals(checkpoint, run.getCheckpoint());
+		assertEquals(processedCount, run.getProcessedCount());
+	}
+}
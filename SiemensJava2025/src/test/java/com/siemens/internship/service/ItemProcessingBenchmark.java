@@ -0,0 +1,104 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.config.ProcessingProperties.ExecutorStrategy;
+import com.siemens.internship.config.ProcessingExecutorConfig;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.repository.DeadLetterItemRepository;
+import com.siemens.internship.repository.ItemRepository;
+import com.siemens.internship.repository.WorkQueueRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Throughput comparison of the processing executor strategies at 10k and 100k items.
+ * The repository is an in-memory stub that sleeps to imitate a JDBC round trip.
+ * VIRTUAL and BOUNDED_VIRTUAL need Java 21: on the Java 17 runtime the project is built for only FIXED is measured
+ * and the virtual strategies are reported as skipped, so the comparison needs the tests run on a Java 21 JVM.
+ * Disabled by default because it runs for minutes; start it with:
+ * mvn test -Dtest=ItemProcessingBenchmark -Dbenchmark=true [-Dbenchmark.delayMs=150 -Dbenchmark.dbLatencyMs=2]
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ItemProcessingBenchmark {
+
+	private static final Logger logger = LoggerFactory.getLogger(ItemProcessingBenchmark.class);
+
+	private static final long DELAY_MS = Long.getLong("benchmark.delayMs", 20);
+	private static final long DB_LATENCY_MS = Long.getLong("benchmark.dbLatencyMs", 2);
+
+	@Test
+	void compareExecutorStrategies() {
+		logger.info(String.format("%-16s %10s %12s %12s", "strategy", "items", "seconds", "items/s"));
+		for (int items : new int[]{10_000, 100_000}) {
+			for (ExecutorStrategy strategy : ExecutorStrategy.values()) {
+				if (strategy != ExecutorStrategy.FIXED && !ProcessingExecutorConfig.virtualThreadsAvailable()) {
+					logger.warn(String.format("%-16s %10d %12s", strategy, items, "skipped, needs Java 21"));
+					continue;
+				}
+				run(strategy, items);
+			}
+		}
+	}
+
+	private void run(ExecutorStrategy strategy, int items) {
+		ProcessingProperties properties = new ProcessingProperties();
+		properties.setExecutorStrategy(strategy);
+		properties.setSimulatedDelay(Duration.ofMillis(DELAY_MS));
+		properties.setChunkSize(1_000);
+		properties.setMaxInFlightChunks(4);
+
+		ExecutorService executor = new ProcessingExecutorConfig().processingExecutor(properties, 10);
+		ItemService itemService = null;
+		try {
+			itemService = new ItemService(stubRepository(items), properties, executor,
+					List.of(new SimulatedWorkItemProcessor(properties)), new AdaptiveConcurrencyLimiter(properties),
+					mock(DeadLetterItemRepository.class), new ProcessingRateLimiter(properties),
+					mock(WorkQueueRepository.class));
+
+			long start = System.nanoTime();
+			int processed = itemService.processItemsAsync().join().size();
+			double seconds = (System.nanoTime() - start) / 1e9;
+
+			assertEquals(items, processed);
+			logger.info(String.format("%-16s %10d %12.2f %12.0f", strategy, items, seconds, items / seconds));
+		} finally {
+			// ItemService's own partition and handoff pools, which Spring would otherwise shut down
+			if (itemService != null) {
+				itemService.shutdown();
+			}
+			executor.shutdownNow();
+		}
+	}
+
+	private ItemRepository stubRepository(int items) {
+		ItemRepository repository = mock(ItemRepository.class, withSettings().stubOnly());
+		when(repository.findIdsAfter(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+			long afterId = invocation.getArgument(0);
+			int max = invocation.<Limit>getArgument(1).max();
+			return LongStream.rangeClosed(afterId + 1, Math.min(items, afterId + max)).boxed().toList();
+		});
+		when(repository.findById(anyLong())).thenAnswer(invocation -> {
+			Thread.sleep(DB_LATENCY_MS);
+			return Optional.of(new Item(invocation.getArgument(0), "Item", "Description", "NEW", "test@example.com"));
+		});
+		when(repository.save(any(Item.class))).thenAnswer(invocation -> {
+			Thread.sleep(DB_LATENCY_MS);
+			return invocation.getArgument(0);
+		});
+		return repository;
+	}
+}
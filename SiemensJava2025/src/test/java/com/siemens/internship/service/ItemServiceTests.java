@@ -0,0 +1,632 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.BulkProcessingResult;
+import com.siemens.internship.model.DeadLetterItem;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ItemFilter;
+import com.siemens.internship.model.ProcessingSummary;
+import com.siemens.internship.repository.DeadLetterItemRepository;
+import com.siemens.internship.repository.ItemRepository;
+import com.siemens.internship.repository.WorkQueueRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class ItemServiceTests {
+
+	private ItemRepository itemRepository;
+	private DeadLetterItemRepository deadLetterRepository;
+	private WorkQueueRepository workQueueRepository;
+	private ExecutorService executor;
+	private ItemService itemService;
+
+	@BeforeEach
+	void setUp() {
+		itemRepository = mock(ItemRepository.class);
+		deadLetterRepository = mock(DeadLetterItemRepository.class);
+		workQueueRepository = mock(WorkQueueRepository.class);
+		ProcessingProperties properties = new ProcessingProperties();
+		properties.setChunkSize(2);
+		properties.setMaxInFlightChunks(2);
+		properties.setSimulatedDelay(Duration.ofMillis(10));
+		properties.getRetry().setInitialBackoff(Duration.ofMillis(5));
+		executor = Executors.newFixedThreadPool(4);
+		itemService = newService(properties, executor);
+
+		List<Long> ids = LongStream.rangeClosed(1, 7).boxed().toList();
+		when(itemRepository.findIdsAfter(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+			long afterId = invocation.getArgument(0);
+			int max = invocation.<Limit>getArgument(1).max();
+			return ids.stream().filter(id -> id > afterId).limit(max).toList();
+		});
+		when(itemRepository.findById(anyLong())).thenAnswer(invocation ->
+				Optional.of(new Item(invocation.getArgument(0), "Item", "Description", "NEW", "test@example.com")));
+		when(itemRepository.save(any(Item.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		when(itemRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Service with the default simulated-work stage, followed by the given extra stages.
+	 */
+	private ItemService newService(ProcessingProperties properties, ExecutorService pool, ItemProcessor... extraStages) {
+		List<ItemProcessor> stages = new ArrayList<>();
+		stages.add(new SimulatedWorkItemProcessor(properties));
+		stages.addAll(List.of(extraStages));
+		return new ItemService(itemRepository, properties, pool, stages, new AdaptiveConcurrencyLimiter(properties),
+				deadLetterRepository, new ProcessingRateLimiter(properties), workQueueRepository);
+	}
+
+	@Test
+	void processItemsAsync_pagesThroughAllIds() {
+		List<Item> result = itemService.processItemsAsync().join();
+
+		assertEquals(7, result.size());
+		assertTrue(result.stream().allMatch(item -> "PROCESSED".equals(item.getStatus())));
+		verify(itemRepository, never()).findAllIds();
+		verify(itemRepository).findIdsAfter(eq(0L), any(Limit.class));
+		verify(itemRepository).findIdsAfter(eq(6L), any(Limit.class));
+		verify(itemRepository, times(4)).saveAll(anyList());
+		verify(itemRepository, never()).save(any(Item.class));
+	}
+
+	@Test
+	void processItemsAsync_recordsTheObservedWriteLatency() {
+		assertTrue(itemService.getObservedWriteMillisPerItem().isEmpty());
+
+		itemService.processItemsAsync().join();
+
+		assertTrue(itemService.getObservedWriteMillisPerItem().orElseThrow() > 0);
+	}
+
+	@Test
+	void processItemsAsync_recordsTheObservedLatencyOfEachStage() {
+		ItemProcessor passThrough = CompletableFuture::completedFuture;
+		ProcessingProperties properties = new ProcessingProperties();
+		properties.setSimulatedDelay(Duration.ofMillis(10));
+		ItemService service = newService(properties, executor, passThrough);
+		assertTrue(service.getObservedStageMillisPerItem(passThrough).isEmpty());
+
+		service.processItemsAsync().join();
+
+		assertTrue(service.getObservedStageMillisPerItem(passThrough).isPresent());
+	}
+
+	@Test
+	void processItemsAsync_perItemWrites_savesEachItem() {
+		ProcessingProperties perItem = new ProcessingProperties();
+		perItem.setChunkSize(2);
+		perItem.setSimulatedDelay(Duration.ofMillis(10));
+		perItem.setBatchWrites(false);
+
+		List<Item> result = newService(perItem, executor).processItemsAsync().join();
+
+		assertEquals(7, result.size());
+		verify(itemRepository, times(7)).save(any(Item.class));
+		verify(itemRepository, never()).saveAll(anyList());
+	}
+
+	@Test
+	void processItemsAsync_failedBatch_writesItemsOneByOne() {
+		when(itemRepository.saveAll(anyList())).thenThrow(new RuntimeException("Batch failed"));
+		when(itemRepository.save(argThat(item -> item.getId() == 3L))).thenThrow(new RuntimeException("Bad row"));
+
+		ProcessingRun run = itemService.process(new ProcessingRun()).join();
+
+		assertEquals(6L, run.getProcessedCount());
+		assertEquals(1L, run.getFailedCount());
+		// Six good rows once each, the bad row once per attempt
+		verify(itemRepository, times(9)).save(any(Item.class));
+		verify(deadLetterRepository).save(argThat(deadLetter -> deadLetter.getItemId() == 3L
+				&& deadLetter.getAttempts() == 3 && deadLetter.getCause().equals("java.lang.RuntimeException: Bad row")));
+	}
+
+	@Test
+	void processItemsSummaryAsync_reportsCountsAndFailedIdsWithoutItems() {
+		when(itemRepository.saveAll(anyList())).thenThrow(new RuntimeException("Batch failed"));
+		when(itemRepository.save(argThat(item -> item.getId() == 5L))).thenThrow(new RuntimeException("Bad row"));
+
+		ProcessingSummary summary = itemService.processItemsSummaryAsync(false, false).join();
+
+		assertEquals(6L, summary.processedCount());
+		assertEquals(1L, summary.failedCount());
+		assertEquals(List.of(5L), summary.failedIds());
+		assertNotNull(summary.finishedAt());
+		assertEquals(summary.durationMillis(), Duration.between(summary.startedAt(), summary.finishedAt()).toMillis());
+	}
+
+	@Test
+	void processItemsSummaryAsync_unchangedItems_areSkippedWithoutWrites() {
+		when(itemRepository.findById(anyLong())).thenAnswer(invocation -> {
+			long id = invocation.getArgument(0);
+			return Optional.of(new Item(id, "Item", "Description", id <= 4L ? "PROCESSED" : "NEW", "test@example.com"));
+		});
+
+		ProcessingSummary summary = itemService.processItemsSummaryAsync(false, false).join();
+
+		assertEquals(3L, summary.processedCount());
+		assertEquals(4L, summary.skippedCount());
+		// The chunks of items 1-2 and 3-4 have nothing to write, so they cost no transaction at all
+		verify(itemRepository, times(2)).saveAll(anyList());
+		verify(itemRepository, never()).saveAll(argThat(items -> ((List<Item>) items).stream()
+				.anyMatch(item -> item.getId() <= 4L)));
+	}
+
+	@Test
+	void process_stagesCompletedByTimers_keepDatabaseWorkOffTheTimerThreads() {
+		ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "test-timer"));
+		try {
+			ProcessingProperties properties = new ProcessingProperties();
+			properties.setChunkSize(2);
+			properties.setSimulatedDelay(Duration.ofMillis(5));
+			ItemProcessor completedByTimer = item -> {
+				CompletableFuture<Item> result = new CompletableFuture<>();
+				timer.schedule(() -> result.complete(item), 5, TimeUnit.MILLISECONDS);
+				return result;
+			};
+			Set<String> databaseThreads = ConcurrentHashMap.newKeySet();
+			when(itemRepository.saveAll(anyList())).thenAnswer(invocation -> {
+				databaseThreads.add(Thread.currentThread().getName());
+				return invocation.getArgument(0);
+			});
+
+			// Runs every task on the submitting thread, as CALLER_RUNS does once the queue is full
+			List<Item> result = newService(properties, new CallerRunsExecutor(), completedByTimer).processItemsAsync().join();
+
+			assertEquals(7, result.size());
+			assertFalse(databaseThreads.isEmpty());
+			assertTrue(databaseThreads.stream().allMatch(name -> name.startsWith("processing-handoff-")), databaseThreads.toString());
+		} finally {
+			timer.shutdownNow();
+		}
+	}
+
+	@Test
+	void processItemsSummaryAsync_hungItem_timesOutWithoutRetries() {
+		ProcessingProperties properties = new ProcessingProperties();
+		properties.setChunkSize(2);
+		properties.setSimulatedDelay(Duration.ofMillis(10));
+		properties.setItemTimeout(Duration.ofMillis(100));
+		ItemProcessor hangingOnFour = item -> item.getId() == 4L
+				? new CompletableFuture<>()
+				: CompletableFuture.completedFuture(item);
+
+		ProcessingSummary summary = newService(properties, executor, hangingOnFour)
+				.processItemsSummaryAsync(false, false).join();
+
+		assertEquals(6L, summary.processedCount());
+		assertEquals(0L, summary.failedCount());
+		assertEquals(List.of(4L), summary.timedOutIds());
+		assertFalse(summary.deadlineExceeded());
+		verify(itemRepository, times(1)).findById(4L);
+		verify(deadLetterRepository).save(argThat(deadLetter -> deadLetter.getItemId() == 4L
+				&& deadLetter.getAttempts() == 1 && deadLetter.getCause().startsWith("java.util.concurrent.TimeoutException")));
+	}
+
+	@Test
+	void processItemsSummaryAsync_hungBatchWrite_timesOutWithoutWritingAgain() throws InterruptedException {
+		ProcessingProperties properties = new ProcessingProperties();
+		properties.setChunkSize(2);
+		properties.setSimulatedDelay(Duration.ofMillis(10));
+		properties.setItemTimeout(Duration.ofMillis(200));
+		CountDownLatch hung = new CountDownLatch(1);
+		when(itemRepository.saveAll(argThat(items -> ((List<Item>) items).stream().anyMatch(item -> item.getId() == 3L))))
+				.thenAnswer(invocation -> {
+					hung.await();
+					return invocation.getArgument(0);
+				});
+
+		ProcessingSummary summary = newService(properties, executor)
+				.processItemsSummaryAsync(false, false).orTimeout(5, TimeUnit.SECONDS).join();
+		hung.countDown();
+
+		assertEquals(5L, summary.processedCount());
+		assertEquals(List.of(3L, 4L), summary.timedOutIds().stream().sorted().toList());
+		verify(itemRepository, never()).save(any(Item.class));
+		verify(deadLetterRepository, times(2)).save(argThat(deadLetter
+				-> deadLetter.getCause().startsWith("java.util.concurrent.TimeoutException")));
+	}
+
+	@Test
+	void processItemsSummaryAsync_deadline_completesWithPartialResults() {
+		ProcessingProperties properties = new ProcessingProperties();
+		properties.setChunkSize(2);
+		properties.setMaxInFlightChunks(2);
+		properties.setSimulatedDelay(Duration.ofMillis(10));
+		properties.setJobDeadline(Duration.ofMillis(300));
+		ItemProcessor hangingFromThree = item -> item.getId() >= 3L
+				? new CompletableFuture<>()
+				: CompletableFuture.completedFuture(item);
+
+		ProcessingSummary summary = newService(properties, executor, hangingFromThree)
+				.processItemsSummaryAsync(false, false).orTimeout(5, TimeUnit.SECONDS).join();
+
+		assertTrue(summary.deadlineExceeded());
+		assertEquals(2L, summary.processedCount());
+		assertEquals(List.of(3L, 4L, 5L, 6L), summary.timedOutIds().stream().sorted().toList());
+		assertEquals(List.of(), summary.notStartedIds());
+		assertEquals(6L, summary.notStartedAfterId());
+		verify(itemRepository, never()).findById(7L);
+	}
+
+	@Test
+	void processItemsSummaryAsync_deadline_keepsTheSlotUntilInFlightWritesEnd() throws Exception {
+		ProcessingProperties properties = new ProcessingProperties();
+		properties.setChunkSize(7);
+		properties.setMaxInFlightChunks(1);
+		properties.setSimulatedDelay(Duration.ofMillis(1));
+		properties.setJobDeadline(Duration.ofMillis(300));
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(itemRepository.saveAll(anyList())).thenAnswer(invocation -> {
+			writing.countDown();
+			release.await();
+			return invocation.getArgument(0);
+		});
+		ItemService deadlineService = newService(properties, executor);
+
+		try {
+			ProcessingSummary summary = deadlineService.processItemsSummaryAsync(false, false).get(5, TimeUnit.SECONDS);
+			assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+			// The caller has its answer, but the write it abandoned still holds the slot
+			assertTrue(summary.deadlineExceeded());
+			assertTrue(deadlineService.ifIdle(() -> CompletableFuture.completedFuture("next")).isEmpty());
+			CompletableFuture<String> next = deadlineService.exclusively(() -> CompletableFuture.completedFuture("next"));
+			assertFalse(next.isDone());
+
+			release.countDown();
+			assertEquals("next", next.get(5, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	void process_transientFailure_isRetried() {
+		when(itemRepository.findById(4L))
+				.thenThrow(new RuntimeException("Deadlock"))
+				.thenReturn(Optional.of(new Item(4L, "Item", "Description", "NEW", "test@example.com")));
+
+		ProcessingRun run = itemService.process(new ProcessingRun()).join();
+
+		assertEquals(7L, run.getProcessedCount());
+		assertEquals(0L, run.getFailedCount());
+		verify(itemRepository, times(2)).findById(4L);
+		verify(deadLetterRepository, never()).save(any(DeadLetterItem.class));
+	}
+
+	@Test
+	void reprocessDeadLettersAsync_onlySelectsDeadLetteredItems() {
+		when(deadLetterRepository.findItemIdsAfter(anyLong(), any(Limit.class)))
+				.thenAnswer(invocation -> invocation.<Long>getArgument(0) < 6L ? List.of(2L, 6L) : List.of());
+
+		List<Item> result = itemService.reprocessDeadLettersAsync(false).join();
+
+		assertEquals(List.of(2L, 6L), result.stream().map(Item::getId).sorted().toList());
+		verify(itemRepository, never()).findIdsAfter(anyLong(), any(Limit.class));
+		verify(deadLetterRepository).deleteResolved(eq(List.of(2L, 6L)), any());
+	}
+
+	@Test
+	void process_workQueue_onlySelectsQueuedItemsAndDequeuesThem() {
+		when(workQueueRepository.findItemIdsAfter(anyLong(), any(Limit.class)))
+				.thenAnswer(invocation -> invocation.<Long>getArgument(0) < 5L ? List.of(3L, 5L) : List.of());
+		ProcessingRun run = new ProcessingRun(ProcessingRun.Scope.WORK_QUEUE);
+
+		itemService.process(run).join();
+
+		assertEquals(2L, run.getProcessedCount());
+		verify(itemRepository, never()).findIdsAfter(anyLong(), any(Limit.class));
+		verify(workQueueRepository).deleteDequeued(eq(List.of(3L, 5L)), eq(run.getStartedAt()));
+	}
+
+	@Test
+	void save_workQueueEnabled_queuesTheSavedItem() {
+		ProcessingProperties properties = new ProcessingProperties();
+		properties.getWorkQueue().setEnabled(true);
+		ItemService service = newService(properties, executor);
+		when(itemRepository.save(any(Item.class))).thenReturn(new Item(9L, "Item", "Description", "NEW", "test@example.com"));
+
+		service.save(new Item(null, "Item", "Description", "NEW", "test@example.com"));
+
+		verify(workQueueRepository).enqueue(eq(9L), any(Instant.class));
+		verify(workQueueRepository, never()).save(any());
+	}
+
+	@Test
+	void process_nonBlockingStages_keepManyItemsInFlightOnSmallPool() {
+		List<Long> ids = LongStream.rangeClosed(1, 200).boxed().toList();
+		when(itemRepository.findIdsAfter(anyLong(), any(Limit.class))).thenAnswer(invocation ->
+				invocation.<Long>getArgument(0) == 0L ? ids : List.of());
+		ProcessingProperties properties = new ProcessingProperties();
+		properties.setChunkSize(200);
+		properties.setSimulatedDelay(Duration.ofMillis(300));
+		ExecutorService smallPool = Executors.newFixedThreadPool(2);
+		ItemProcessor tagging = item -> {
+			item.setDescription("tagged after " + item.getStatus());
+			return CompletableFuture.completedFuture(item);
+		};
+
+		try {
+			long start = System.nanoTime();
+			List<Item> result = newService(properties, smallPool, tagging).processItemsAsync().join();
+			Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+			assertEquals(200, result.size());
+			assertTrue(result.stream().allMatch(item -> "tagged after PROCESSED".equals(item.getDescription())));
+			// Sleeping 300 ms per item on 2 threads would take 30 s
+			assertTrue(elapsed.compareTo(Duration.ofSeconds(5)) < 0, "Took " + elapsed);
+		} finally {
+			smallPool.shutdownNow();
+		}
+	}
+
+	@Test
+	void processFilteredSummaryAsync_emailDomain_pagesThroughTheDomainOnly() {
+		when(itemRepository.countWithEmailDomainBetween("example.com", 0L, 5L)).thenReturn(2L);
+		when(itemRepository.findIdsAfterWithEmailDomain(anyLong(), eq(5L), eq("example.com"), any(Limit.class)))
+				.thenAnswer(invocation -> invocation.<Long>getArgument(0) < 4L ? List.of(2L, 4L) : List.of());
+
+		ProcessingSummary summary = itemService
+				.processFilteredSummaryAsync(new ItemFilter(null, null, 5L, null, " @Example.COM"))
+				.join();
+
+		assertEquals(2L, summary.processedCount());
+		verify(itemRepository, never()).findIdsAfter(anyLong(), any(Limit.class));
+		verify(itemRepository).findById(2L);
+		verify(itemRepository).findById(4L);
+	}
+
+	@Test
+	void processFilteredSummaryAsync_invalidFilter_isRejected() {
+		assertThrows(IllegalArgumentException.class, () -> itemService
+				.processFilteredSummaryAsync(new ItemFilter(null, null, null, null, null)));
+		assertThrows(IllegalArgumentException.class, () -> itemService
+				.processFilteredSummaryAsync(new ItemFilter("NEW", null, null, List.of(1L), null)));
+		assertThrows(IllegalArgumentException.class, () -> itemService
+				.processFilteredSummaryAsync(new ItemFilter(null, 5L, 2L, null, null)));
+	}
+
+	@Test
+	void process_resumesAfterCheckpoint() {
+		ProcessingRun resumed = new ProcessingRun(false, 4L, 4L, 0L);
+		resumed.setCollectItems(true);
+		ProcessingRun run = itemService.process(resumed).join();
+
+		assertEquals(7L, run.getCheckpoint());
+		assertEquals(7L, run.getProcessedCount());
+		assertEquals(3, run.getProcessedItems().size());
+		verify(itemRepository, never()).findById(4L);
+		verify(itemRepository).findById(5L);
+	}
+
+	@Test
+	void processUnprocessedItemsAsync_onlySelectsOutstandingItems() {
+		when(itemRepository.findPendingIdsAfter(anyLong(), any(Limit.class)))
+				.thenAnswer(invocation -> invocation.<Long>getArgument(0) < 3L ? List.of(3L, 5L) : List.of());
+
+		List<Item> result = itemService.processUnprocessedItemsAsync().join();
+
+		assertEquals(List.of(3L, 5L), result.stream().map(Item::getId).sorted().toList());
+		verify(itemRepository, never()).findIdsAfter(anyLong(), any(Limit.class));
+		verify(itemRepository).saveAll(List.of(result.get(0), result.get(1)));
+	}
+
+	@Test
+	void process_cancelled_abortsPendingItemsAndStops() throws Exception {
+		ProcessingProperties slow = new ProcessingProperties();
+		slow.setChunkSize(2);
+		slow.setMaxInFlightChunks(2);
+		slow.setSimulatedDelay(Duration.ofSeconds(30));
+		ItemService slowService = newService(slow, executor);
+
+		ProcessingRun run = new ProcessingRun();
+		CompletableFuture<ProcessingRun> processing = slowService.process(run);
+		Thread.sleep(200);
+		run.cancel();
+
+		assertSame(run, processing.get(5, TimeUnit.SECONDS));
+		assertTrue(run.isCancelled());
+		assertEquals(0L, run.getProcessedCount());
+		assertEquals(0L, run.getFailedCount());
+		assertEquals(0L, run.getCheckpoint());
+		verify(itemRepository, never()).save(any(Item.class));
+		verify(itemRepository, never()).saveAll(anyList());
+		verify(itemRepository, times(2)).findIdsAfter(anyLong(), any(Limit.class));
+	}
+
+	@Test
+	void cancelRun_cancelsTheRunAttachedRequestsShare() throws Exception {
+		ProcessingProperties slow = new ProcessingProperties();
+		slow.setSimulatedDelay(Duration.ofSeconds(30));
+		ItemService slowService = newService(slow, executor);
+
+		CompletableFuture<ProcessingRun> first = slowService.processItemsRunAsync(false, false);
+		CompletableFuture<ProcessingRun> second = slowService.processItemsRunAsync(false, false);
+		List<ProcessingRun> active = slowService.findActiveRuns();
+		assertEquals(1, active.size());
+
+		CompletableFuture<ProcessingRun> cancelled = slowService.cancelRun(active.get(0).getId()).orElseThrow();
+
+		assertSame(active.get(0), cancelled.get(5, TimeUnit.SECONDS));
+		assertSame(cancelled.join(), first.get(5, TimeUnit.SECONDS));
+		assertSame(cancelled.join(), second.get(5, TimeUnit.SECONDS));
+		assertTrue(cancelled.join().isCancelled());
+		assertTrue(slowService.findActiveRuns().isEmpty());
+		assertTrue(slowService.cancelRun(active.get(0).getId()).isEmpty());
+	}
+
+	@Test
+	void processItemsAsync_concurrentRequests_shareOneRun() {
+		CompletableFuture<List<Item>> first = itemService.processItemsAsync();
+		CompletableFuture<List<Item>> second = itemService.processItemsAsync();
+		CompletableFuture<ProcessingSummary> summary = itemService.processItemsSummaryAsync(false, false);
+
+		assertEquals(first.join(), second.join());
+		assertEquals(7, first.join().size());
+		assertEquals(7L, summary.join().processedCount());
+		verify(itemRepository, times(1)).findIdsAfter(eq(0L), any(Limit.class));
+		verify(itemRepository, times(7)).findById(anyLong());
+	}
+
+	@Test
+	void processItemsAsync_forced_startsSeparateRunAfterTheOneInProgress() {
+		CompletableFuture<ProcessingRun> shared = itemService.processItemsRunAsync(false, false);
+		CompletableFuture<ProcessingRun> forced = itemService.processItemsRunAsync(false, true);
+
+		assertEquals(7, shared.join().getProcessedItems().size());
+		assertEquals(7, forced.join().getProcessedItems().size());
+		assertNotSame(shared.join(), forced.join());
+		assertTrue(forced.join().getStartedAt().compareTo(shared.join().getFinishedAt()) >= 0);
+		verify(itemRepository, times(2)).findIdsAfter(eq(0L), any(Limit.class));
+	}
+
+	@Test
+	void exclusively_waitsForTheRunHoldingTheSlot() {
+		ProcessingRun onDemand = itemService.startProcessing(false, false).join();
+		AtomicBoolean overlapped = new AtomicBoolean();
+
+		CompletableFuture<String> bulk = itemService.exclusively(() -> {
+			overlapped.set(!onDemand.getCompletion().isDone());
+			return CompletableFuture.completedFuture("done");
+		});
+
+		assertEquals("done", bulk.join());
+		assertFalse(overlapped.get());
+		assertTrue(itemService.ifIdle(() -> CompletableFuture.completedFuture("idle")).isPresent());
+	}
+
+	@Test
+	void ifIdle_leavesWorkOutWhileARunHoldsTheSlot() {
+		CompletableFuture<Void> holding = new CompletableFuture<>();
+		itemService.exclusively(() -> holding);
+
+		assertTrue(itemService.ifIdle(() -> CompletableFuture.completedFuture("idle")).isEmpty());
+
+		holding.complete(null);
+		assertEquals("idle", itemService.ifIdle(() -> CompletableFuture.completedFuture("idle")).orElseThrow().join());
+	}
+
+	@Test
+	void startProcessing_withSetup_waitsForRunInProgress() {
+		ProcessingRun shared = itemService.startProcessing(false, false).join();
+		List<ProcessingRun> setUp = new ArrayList<>();
+
+		ProcessingRun own = itemService.startProcessing(false, setUp::add).join();
+
+		assertTrue(shared.getCompletion().isDone());
+		assertNotSame(shared, own);
+		assertEquals(List.of(own), setUp);
+		assertEquals(7L, own.getCompletion().join().getProcessedCount());
+	}
+
+	@Test
+	void processItemsPartitionedAsync_splitsUnevenIdRangesIntoLeaves() {
+		// Two dense clusters far apart; a split by ID alone would leave one half empty and the other too big
+		List<Long> ids = LongStream.concat(LongStream.rangeClosed(1, 5), LongStream.rangeClosed(1_000_000, 1_000_004))
+				.boxed().toList();
+		when(itemRepository.findMinId()).thenReturn(1L);
+		when(itemRepository.findMaxId()).thenReturn(1_000_004L);
+		when(itemRepository.findIdsBetween(anyLong(), anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+			long fromId = invocation.getArgument(0);
+			long toId = invocation.getArgument(1);
+			int max = invocation.<Limit>getArgument(2).max();
+			return ids.stream().filter(id -> id >= fromId && id <= toId).limit(max).toList();
+		});
+		when(itemRepository.findAllById(anyList())).thenAnswer(invocation -> invocation.<List<Long>>getArgument(0).stream()
+				.map(id -> new Item(id, "Item", "Description", "NEW", "test@example.com"))
+				.toList());
+
+		ProcessingSummary summary = itemService.processItemsPartitionedAsync(false).join();
+
+		assertEquals(10L, summary.processedCount());
+		assertEquals(0L, summary.failedCount());
+		// Leaves hold at most chunkSize (2) items, each loaded with one query and written with one saveAll
+		verify(itemRepository, atLeast(5)).saveAll(anyList());
+		verify(itemRepository, never()).saveAll(argThat(items -> ((List<?>) items).size() > 2));
+		verify(itemRepository, never()).findById(anyLong());
+	}
+
+	@Test
+	void processItemsInBulkAsync_updatesEachPageWithOneStatement() {
+		// Item 4 was deleted or already PROCESSED by the time its page was updated
+		when(itemRepository.transitionStatus(anyList(), eq("PROCESSED"))).thenAnswer(invocation ->
+				invocation.<List<Long>>getArgument(0).stream().filter(id -> id != 4L).toList());
+
+		BulkProcessingResult result = itemService.processItemsInBulkAsync().join();
+
+		assertEquals(List.of(1L, 2L, 3L, 5L, 6L, 7L), result.processedIds());
+		assertEquals(6, result.updatedCount());
+		assertEquals(1, result.skippedCount());
+		assertEquals(13, result.statementCount());
+		verify(itemRepository, times(4)).transitionStatus(anyList(), eq("PROCESSED"));
+		verify(itemRepository, never()).findById(anyLong());
+		verify(itemRepository, never()).save(any(Item.class));
+	}
+
+	private static class CallerRunsExecutor extends AbstractExecutorService {
+		private volatile boolean shutdown;
+
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+
+		@Override
+		public void shutdown() {
+			shutdown = true;
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			shutdown = true;
+			return List.of();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return shutdown;
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return shutdown;
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) {
+			return true;
+		}
+	}
+}
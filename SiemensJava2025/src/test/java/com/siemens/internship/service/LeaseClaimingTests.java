@@ -0,0 +1,83 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.repository.DeadLetterItemRepository;
+import com.siemens.internship.repository.ItemRepository;
+import com.siemens.internship.repository.WorkQueueRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two ItemService instances with different node IDs process the same database concurrently,
+ * standing in for two application instances.
+ */
+@SpringBootTest
+class LeaseClaimingTests {
+
+	@Autowired
+	private ItemRepository itemRepository;
+
+	@Autowired
+	private DeadLetterItemRepository deadLetterRepository;
+
+	@Autowired
+	private WorkQueueRepository workQueueRepository;
+
+	@Test
+	void concurrentInstances_processEveryItemExactlyOnce() {
+		itemRepository.saveAll(IntStream.range(0, 200)
+				.mapToObj(i -> new Item(null, "Item " + i, "Description", "NEW", "test@example.com"))
+				.toList());
+
+		ExecutorService firstPool = Executors.newFixedThreadPool(4);
+		ExecutorService secondPool = Executors.newFixedThreadPool(4);
+		try {
+			ItemService first = service(properties("node-a"), firstPool);
+			ItemService second = service(properties("node-b"), secondPool);
+
+			CompletableFuture<List<Item>> firstRun = first.processItemsAsync();
+			CompletableFuture<List<Item>> secondRun = second.processItemsAsync();
+			List<Item> firstItems = firstRun.join();
+			List<Item> secondItems = secondRun.join();
+
+			Set<Long> ids = new HashSet<>();
+			firstItems.forEach(item -> assertTrue(ids.add(item.getId())));
+			secondItems.forEach(item -> assertTrue(ids.add(item.getId()), "Item processed twice: " + item.getId()));
+			assertEquals(200, ids.size());
+			assertTrue(itemRepository.findAll().stream()
+					.allMatch(item -> "PROCESSED".equals(item.getStatus()) && item.getLeaseOwner() == null));
+		} finally {
+			firstPool.shutdownNow();
+			secondPool.shutdownNow();
+		}
+	}
+
+	private ItemService service(ProcessingProperties properties, ExecutorService pool) {
+		return new ItemService(itemRepository, properties, pool, List.of(new SimulatedWorkItemProcessor(properties)),
+				new AdaptiveConcurrencyLimiter(properties), deadLetterRepository,
+				new ProcessingRateLimiter(properties), workQueueRepository);
+	}
+
+	private static ProcessingProperties properties(String nodeId) {
+		ProcessingProperties properties = new ProcessingProperties();
+		properties.setChunkSize(10);
+		properties.setMaxInFlightChunks(2);
+		properties.setSimulatedDelay(Duration.ofMillis(5));
+		properties.getLease().setEnabled(true);
+		properties.getLease().setNodeId(nodeId);
+		return properties;
+	}
+}
@@ -0,0 +1,110 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ProcessingEstimate;
+import com.siemens.internship.repository.ItemRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+class ProcessingEstimatorTests {
+
+	@Autowired
+	private ProcessingEstimator estimator;
+
+	@Autowired
+	private ItemRepository itemRepository;
+
+	@Test
+	void estimateAsync_samplesAndProjectsWithoutWriting() {
+		List<Item> items = itemRepository.saveAll(IntStream.range(0, 100)
+				.mapToObj(i -> new Item(null, "Item " + i, "Description", "NEW", "test@example.com"))
+				.toList());
+		try {
+			long outstanding = itemRepository.countPending();
+
+			ProcessingEstimate estimate = estimator.estimateAsync(true, 20).join();
+
+			assertEquals(outstanding, estimate.candidateCount());
+			assertTrue(estimate.sampledCount() > 0 && estimate.sampledCount() <= 20);
+			assertEquals(1.0, estimate.changedFraction());
+			assertTrue(estimate.projectedDurationMillis() > 0);
+			assertEquals(outstanding, estimate.projectedRowWrites());
+			// Nothing is written, the write latency comes from earlier runs or the reads
+			assertEquals(outstanding, itemRepository.countPending());
+			assertTrue(List.of("observed", "read-proxy").contains(estimate.writeLatencySource()));
+			assertTrue(estimate.writeMillisPerItem() > 0);
+		} finally {
+			itemRepository.deleteAll(items);
+		}
+	}
+
+	@Test
+	void estimateAsync_stageWithSideEffects_isNotRunButCostedFromEarlierRuns() {
+		ItemRepository repository = mock(ItemRepository.class);
+		when(repository.countPending()).thenReturn(10L);
+		when(repository.findMinId()).thenReturn(1L);
+		when(repository.findMaxId()).thenReturn(10L);
+		when(repository.findPendingIdsAfter(anyLong(), any(Limit.class))).thenReturn(List.of(1L, 2L));
+		when(repository.findById(anyLong())).thenAnswer(invocation ->
+				Optional.of(new Item(invocation.getArgument(0), "Item", "Description", "NEW", "test@example.com")));
+		NotifyingStage notifying = new NotifyingStage();
+		ItemService itemService = mock(ItemService.class);
+		when(itemService.getObservedWriteMillisPerItem()).thenReturn(OptionalDouble.empty());
+		when(itemService.getObservedStageMillisPerItem(notifying)).thenReturn(OptionalDouble.of(50.0));
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			ProcessingEstimator dryRun = new ProcessingEstimator(repository, itemService,
+					List.of(item -> CompletableFuture.completedFuture(item), notifying), new ProcessingProperties(), pool, 10);
+
+			ProcessingEstimate estimate = dryRun.estimateAsync(true, 2).join();
+
+			assertEquals(0, notifying.calls.get());
+			assertEquals(List.of("NotifyingStage"), estimate.unsampledStages());
+			assertTrue(estimate.transformMillisPerItem() >= 50.0);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/** A stage that tells another system about every item, so a dry run must not call it. */
+	private static class NotifyingStage implements ItemProcessor {
+		private final AtomicInteger calls = new AtomicInteger();
+
+		@Override
+		public CompletionStage<Item> process(Item item) {
+			calls.incrementAndGet();
+			return CompletableFuture.completedFuture(item);
+		}
+
+		@Override
+		public boolean isSampleable() {
+			return false;
+		}
+	}
+
+	@Test
+	void estimateAsync_invalidSampleSize_isRejected() {
+		assertThrows(IllegalArgumentException.class, () -> estimator.estimateAsync(false, 0));
+		assertThrows(IllegalArgumentException.class,
+				() -> estimator.estimateAsync(false, ProcessingEstimator.MAX_SAMPLE_SIZE + 1));
+	}
+}
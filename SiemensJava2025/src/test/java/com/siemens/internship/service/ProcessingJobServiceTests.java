@@ -0,0 +1,130 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.ProcessingJob;
+import com.siemens.internship.repository.ProcessingJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class ProcessingJobServiceTests {
+
+	private ProcessingJobRepository jobRepository;
+	private ItemService itemService;
+	private ProcessingJobService jobService;
+	/** Runs the service handed to ItemService, left running until a test completes them. */
+	private final List<ProcessingRun> runs = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		jobRepository = mock(ProcessingJobRepository.class);
+		itemService = mock(ItemService.class);
+		when(itemService.exclusively(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+		when(itemService.process(any())).thenAnswer(invocation -> {
+			ProcessingRun run = invocation.getArgument(0);
+			runs.add(run);
+			return run.getCompletion();
+		});
+		ProcessingProperties properties = new ProcessingProperties();
+		properties.getLease().setNodeId("node-a");
+		jobService = new ProcessingJobService(jobRepository, itemService, properties);
+	}
+
+	@AfterEach
+	void tearDown() {
+		jobService.shutdown();
+	}
+
+	@Test
+	void start_ownsTheJobUnderALease() {
+		when(jobRepository.save(any(ProcessingJob.class))).thenAnswer(invocation -> withId(invocation.getArgument(0), 1L));
+
+		ProcessingJob job = jobService.start(false);
+
+		assertEquals("node-a", job.getOwnerNode());
+		assertTrue(job.getLeaseExpiresAt().isAfter(Instant.now()));
+		assertEquals(1, runs.size());
+	}
+
+	@Test
+	void heartbeat_renewsTheLeasesOfRunningJobs() {
+		when(jobRepository.save(any(ProcessingJob.class))).thenAnswer(invocation -> withId(invocation.getArgument(0), 1L));
+		when(jobRepository.renewLease(eq(1L), eq("node-a"), any(Instant.class))).thenReturn(1);
+		jobService.start(false);
+
+		jobService.heartbeat();
+
+		verify(jobRepository).renewLease(eq(1L), eq("node-a"), any(Instant.class));
+		assertFalse(runs.get(0).isCancelled());
+	}
+
+	@Test
+	void heartbeat_lostLease_stopsTheJobWithoutWritingItsOutcome() {
+		when(jobRepository.save(any(ProcessingJob.class))).thenAnswer(invocation -> withId(invocation.getArgument(0), 1L));
+		when(jobRepository.renewLease(eq(1L), eq("node-a"), any(Instant.class))).thenReturn(0);
+		when(jobRepository.findById(1L)).thenReturn(Optional.of(new ProcessingJob()));
+		jobService.start(false);
+
+		jobService.heartbeat();
+
+		ProcessingRun run = runs.get(0);
+		assertTrue(run.isCancelled());
+		run.getCompletion().complete(run);
+		verify(jobRepository, never()).finish(anyLong(), any(), any(), any());
+	}
+
+	@Test
+	void heartbeat_takesOverAnExpiredJobOnlyIfItWinsTheUpdate() {
+		ProcessingJob orphaned = withId(new ProcessingJob(), 7L);
+		orphaned.setOwnerNode("node-b");
+		orphaned.setCheckpoint(40L);
+		when(jobRepository.findOrphaned(isNull(), any(Instant.class))).thenReturn(List.of(orphaned));
+		when(jobRepository.findById(7L)).thenReturn(Optional.of(orphaned));
+		when(jobRepository.takeOver(eq(7L), eq("node-a"), any(Instant.class), isNull(), any(Instant.class))).thenReturn(0);
+
+		jobService.heartbeat();
+		assertTrue(runs.isEmpty());
+
+		when(jobRepository.takeOver(eq(7L), eq("node-a"), any(Instant.class), isNull(), any(Instant.class))).thenReturn(1);
+		jobService.heartbeat();
+		assertEquals(1, runs.size());
+		assertEquals(40L, runs.get(0).getStartAfterId());
+
+		// Running here now, so the next heartbeat does not take it over a second time
+		jobService.heartbeat();
+		assertEquals(1, runs.size());
+	}
+
+	@Test
+	void chunkWriteRejected_stopsTheJob() {
+		when(jobRepository.save(any(ProcessingJob.class))).thenAnswer(invocation -> withId(invocation.getArgument(0), 1L));
+		when(jobRepository.updateProgress(eq(1L), eq("node-a"), anyLong(), anyLong(), anyLong(), anyLong(), any()))
+				.thenReturn(0);
+		jobService.start(false);
+		ProcessingRun run = runs.get(0);
+
+		run.chunkCompleted(run.nextChunk((afterId, limit) -> List.of(1L, 2L), 2));
+		assertTrue(run.isCancelled());
+
+		run.getCompletion().complete(run);
+		verify(jobRepository, never()).finish(anyLong(), any(), any(), any());
+	}
+
+	private static ProcessingJob withId(ProcessingJob job, Long id) {
+		job.setId(id);
+		return job;
+	}
+}
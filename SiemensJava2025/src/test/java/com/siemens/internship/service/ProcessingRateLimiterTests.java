@@ -0,0 +1,69 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.RateLimitSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessingRateLimiterTests {
+
+	private ProcessingRateLimiter limiter;
+
+	@BeforeEach
+	void setUp() {
+		ProcessingProperties properties = new ProcessingProperties();
+		properties.getRateLimit().setEnabled(true);
+		properties.getRateLimit().setItemsPerSecond(20.0);
+		properties.getRateLimit().setBurst(2);
+		limiter = new ProcessingRateLimiter(properties);
+	}
+
+	@AfterEach
+	void tearDown() {
+		limiter.shutdown();
+	}
+
+	@Test
+	void itemsBeyondTheBurst_areAdmittedAtTheConfiguredRate() {
+		long start = System.nanoTime();
+		List<CompletableFuture<Void>> admissions = IntStream.range(0, 6).mapToObj(i -> limiter.acquire()).toList();
+
+		assertTrue(admissions.get(0).isDone());
+		assertTrue(admissions.get(1).isDone());
+		assertFalse(admissions.get(2).isDone());
+		assertEquals(4, limiter.status().waiting());
+
+		CompletableFuture.allOf(admissions.toArray(new CompletableFuture[0])).join();
+		Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+		// 4 items over the burst at 20 items/s take about 200 ms
+		assertTrue(elapsed.compareTo(Duration.ofMillis(150)) >= 0, "Took " + elapsed);
+		assertTrue(elapsed.compareTo(Duration.ofSeconds(2)) < 0, "Took " + elapsed);
+	}
+
+	@Test
+	void disabling_admitsWaitingItemsAtOnce() {
+		limiter.update(new RateLimitSettings(null, 0.1, null));
+		List<CompletableFuture<Void>> admissions = IntStream.range(0, 4).mapToObj(i -> limiter.acquire()).toList();
+		assertFalse(admissions.get(3).isDone());
+
+		limiter.update(new RateLimitSettings(false, null, null));
+
+		assertTrue(admissions.stream().allMatch(CompletableFuture::isDone));
+		assertEquals(0, limiter.status().waiting());
+		assertTrue(limiter.acquire().isDone());
+	}
+
+	@Test
+	void update_rejectsNonPositiveRate() {
+		assertThrows(IllegalArgumentException.class, () -> limiter.update(new RateLimitSettings(true, 0.0, null)));
+		assertEquals(20.0, limiter.status().itemsPerSecond());
+	}
+}
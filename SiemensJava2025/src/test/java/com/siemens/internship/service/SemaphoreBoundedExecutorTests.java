@@ -0,0 +1,85 @@
+package com.siemens.internship.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SemaphoreBoundedExecutorTests {
+
+	/** Platform threads stand in for virtual threads, which this Java 17 build does not have. */
+	private final List<Thread> threads = new CopyOnWriteArrayList<>();
+	private SemaphoreBoundedExecutor executor;
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@BeforeEach
+	void setUp() throws Exception {
+		ExecutorService delegate = Executors.newCachedThreadPool(task -> {
+			Thread thread = new Thread(task);
+			threads.add(thread);
+			return thread;
+		});
+		executor = new SemaphoreBoundedExecutor(delegate, 1);
+		CountDownLatch started = new CountDownLatch(1);
+		executor.execute(() -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+	}
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		executor.shutdownNow();
+	}
+
+	@Test
+	void interruptWhileWaitingForAPermit_stillRunsTheTask() throws Exception {
+		CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> Thread.currentThread().isInterrupted(), executor);
+		awaitWaiting(1);
+
+		threads.get(1).interrupt();
+		Thread.sleep(50);
+		assertFalse(waiter.isDone());
+
+		release.countDown();
+		assertTrue(waiter.get(5, TimeUnit.SECONDS), "The command sees the interrupt it was given");
+	}
+
+	@Test
+	void shutdownNow_returnsTheTasksStillWaitingForAPermit() throws Exception {
+		AtomicBoolean ran = new AtomicBoolean();
+		Runnable waiter = () -> ran.set(true);
+		executor.execute(waiter);
+		awaitWaiting(1);
+
+		List<Runnable> notStarted = executor.shutdownNow();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+		assertEquals(List.of(waiter), notStarted);
+		assertFalse(ran.get());
+	}
+
+	private void awaitWaiting(int count) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (executor.getWaitingCount() < count && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(count, executor.getWaitingCount());
+	}
+}
@@ -0,0 +1,150 @@
+package com.siemens.internship.service;
+
+import com.siemens.internship.config.ProcessingProperties;
+import com.siemens.internship.model.Item;
+import com.siemens.internship.model.ProcessingSummary;
+import com.siemens.internship.repository.DeadLetterItemRepository;
+import com.siemens.internship.repository.ItemRepository;
+import com.siemens.internship.repository.WorkQueueRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class StagedItemPipelineTests {
+
+	private ItemRepository itemRepository;
+	private ProcessingProperties properties;
+	private ExecutorService executor;
+	private StagedItemPipeline pipeline;
+
+	@BeforeEach
+	void setUp() {
+		itemRepository = mock(ItemRepository.class);
+		properties = new ProcessingProperties();
+		properties.setSimulatedDelay(Duration.ofMillis(1));
+		properties.setChunkSize(7);
+		properties.getRetry().setMaxAttempts(1);
+		properties.getPipeline().setTransformThreads(4);
+		properties.getPipeline().setWriterThreads(3);
+		properties.getPipeline().setQueueCapacity(5);
+		properties.getPipeline().setWriteBatchSize(4);
+		executor = Executors.newFixedThreadPool(4);
+		ItemService itemService = new ItemService(itemRepository, properties, executor,
+				List.of(new SimulatedWorkItemProcessor(properties), failingOn(13L)),
+				new AdaptiveConcurrencyLimiter(properties), mock(DeadLetterItemRepository.class),
+				new ProcessingRateLimiter(properties), mock(WorkQueueRepository.class));
+		pipeline = new StagedItemPipeline(itemService, itemRepository, properties, new ProcessingRateLimiter(properties));
+
+		List<Long> ids = LongStream.rangeClosed(1, 50).boxed().toList();
+		when(itemRepository.findIdsAfter(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+			long afterId = invocation.getArgument(0);
+			int max = invocation.<Limit>getArgument(1).max();
+			return ids.stream().filter(id -> id > afterId).limit(max).toList();
+		});
+		when(itemRepository.findAllById(anyList())).thenAnswer(invocation -> invocation.<List<Long>>getArgument(0).stream()
+				.map(id -> new Item(id, "Item", "Description", "NEW", "test@example.com"))
+				.toList());
+		when(itemRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void processAsync_passesEveryItemThroughAllStages() {
+		ProcessingSummary summary = pipeline.processAsync(false).join();
+
+		assertEquals(49L, summary.processedCount());
+		assertEquals(1L, summary.failedCount());
+		assertEquals(List.of(13L), summary.failedIds());
+		assertNotNull(summary.finishedAt());
+		verify(itemRepository, times(8)).findAllById(anyList());
+		verify(itemRepository, atLeast(13)).saveAll(argThat(items -> ((List<?>) items).size() <= 4));
+	}
+
+	@Test
+	void processAsync_failsRunWhenReaderFails() {
+		when(itemRepository.findAllById(anyList())).thenThrow(new IllegalStateException("database down"));
+
+		CompletableFuture<ProcessingSummary> result = pipeline.processAsync(false);
+
+		Exception ex = assertThrows(Exception.class, result::join);
+		assertInstanceOf(IllegalStateException.class, ex.getCause());
+		verify(itemRepository, never()).saveAll(anyList());
+	}
+
+	@Test
+	void processAsync_hungBatchWrite_timesOutInsteadOfBlockingTheWriters() throws Exception {
+		properties.setItemTimeout(Duration.ofMillis(100));
+		CountDownLatch hung = new CountDownLatch(1);
+		AtomicBoolean first = new AtomicBoolean(true);
+		when(itemRepository.saveAll(anyList())).thenAnswer(invocation -> {
+			if (first.getAndSet(false)) {
+				hung.await();
+			}
+			return invocation.getArgument(0);
+		});
+		try {
+			ProcessingSummary summary = pipeline.processAsync(false).get(10, TimeUnit.SECONDS);
+
+			assertTrue(summary.timedOutCount() >= 1 && summary.timedOutCount() <= 4, "Timed out: " + summary.timedOutCount());
+			assertEquals(49L, summary.processedCount() + summary.timedOutCount());
+			// Timed-out batches are not written again while they may still commit
+			verify(itemRepository, never()).save(any(Item.class));
+		} finally {
+			hung.countDown();
+		}
+	}
+
+	@Test
+	void processAsync_concurrentRequests_shareOnePipeline() {
+		CompletableFuture<ProcessingSummary> first = pipeline.processAsync(false);
+		CompletableFuture<ProcessingSummary> second = pipeline.processAsync(false);
+
+		assertSame(first, second);
+		assertEquals(49L, first.join().processedCount());
+		verify(itemRepository, times(1)).findIdsAfter(eq(0L), any(Limit.class));
+
+		pipeline.processAsync(false).join();
+		verify(itemRepository, times(2)).findIdsAfter(eq(0L), any(Limit.class));
+	}
+
+	@Test
+	void bindTo_publishesQueueDepthPerStage() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		pipeline.bindTo(registry);
+		pipeline.processAsync(false).join();
+
+		assertEquals(0.0, registry.get("processing.pipeline.queue.size").tag("stage", "transform").gauge().value());
+		assertEquals(0.0, registry.get("processing.pipeline.queue.size").tag("stage", "write").gauge().value());
+		assertEquals(0.0, registry.get("processing.pipeline.busy").tag("stage", "write").gauge().value());
+	}
+
+	private static ItemProcessor failingOn(Long id) {
+		return item -> id.equals(item.getId())
+				? CompletableFuture.failedFuture(new IllegalStateException("bad item"))
+				: CompletableFuture.completedFuture(item);
+	}
+}